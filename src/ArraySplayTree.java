@@ -0,0 +1,503 @@
+import java.util.Arrays;
+
+/**
+ * An array-backed implementation of SplayTree. Nodes are slots in parallel
+ * primitive int arrays instead of individual SplayNode objects, so a tree of
+ * any size is made of only five arrays and puts almost no load on the garbage
+ * collector.
+ * <p>
+ *
+ * Child and parent references are slot indices, with `NIL` standing for null.
+ * Slots released by removals are kept on a free list (threaded through the
+ * `left` array) and reused by later insertions. The arrays grow by doubling and
+ * never shrink.
+ * <p>
+ *
+ * The insert, remove and search operations, splay rules and counters are the
+ * same as those of SplayTree with its default (full) splay policy: repeated
+ * keys are counted as copies of one slot, and the last copy is removed by
+ * splaying its slot to the root and joining its subtrees. Both therefore
+ * produce the same trees and statistics for the same operations.
+ *
+ * @see SplayTree
+ */
+public class ArraySplayTree {
+    /**
+     * Slot index standing for a null reference.
+     */
+    private static final int NIL = -1;
+
+    /**
+     * Default number of slots initially reserved.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Data value of every slot.
+     */
+    private int[] data;
+
+    /**
+     * Parent slot of every slot.
+     */
+    private int[] parent;
+
+    /**
+     * Left child slot of every slot (or next free slot for released slots).
+     */
+    private int[] left;
+
+    /**
+     * Right child slot of every slot.
+     */
+    private int[] right;
+
+    /**
+     * Number of copies of the data value of every slot.
+     */
+    private int[] count;
+
+    /**
+     * Root slot.
+     */
+    private int root = NIL;
+
+    /**
+     * Head of the free list of released slots.
+     */
+    private int free = NIL;
+
+    /**
+     * Number of slots handed out so far (released or not).
+     */
+    private int used = 0;
+
+    /**
+     * Total number of nodes within tree.
+     */
+    private int size = 0;
+
+    /**
+     * Number of comparison operations.
+     */
+    private int compareCount = 0;
+
+    /**
+     * Number of zigzig operations.
+     */
+    private int zigzigCount = 0;
+
+    /**
+     * Number of zigzag operations.
+     */
+    private int zigzagCount = 0;
+
+    /**
+     * Constructs a new ArraySplayTree with default attributes.
+     */
+    public ArraySplayTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new ArraySplayTree with room for the provided number of nodes.
+     *
+     * @param initialCapacity the initial number of slots
+     */
+    public ArraySplayTree(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        data = new int[capacity];
+        parent = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        count = new int[capacity];
+    }
+
+    /**
+     * Inserts new node in tree with provided data value, or counts one more copy
+     * of the node already holding it.
+     *
+     * @param value the data value
+     */
+    public void insert(int value) {
+        // A key already in the tree only gains a copy (its node is splayed by
+        // the search).
+        int found = searchNode(value);
+        if (found != NIL) {
+            count[found]++;
+            return;
+        }
+
+        int node = root;
+        int p = NIL;
+        size++;
+
+        // Descend tree to find which node should contain new node as its child.
+        while (node != NIL) {
+            p = node;
+            if (value < data[p])
+                node = left[node];
+            else
+                node = right[node];
+        }
+
+        // Position the new node as either the root or left or right child of parent
+        // node just found.
+        node = allocate(value);
+        parent[node] = p;
+
+        if (p == NIL)
+            root = node;
+        else if (value < data[p])
+            left[p] = node;
+        else
+            right[p] = node;
+
+        // Splay the node.
+        splay(node);
+    }
+
+    /**
+     * Removes one copy of the given data value from the tree, and its node with
+     * the last copy.
+     *
+     * @param value the data value
+     */
+    public void remove(int value) {
+        int node = searchNode(value);
+        if (node != NIL && count[node] > 1)
+            count[node]--;
+        else
+            removeNode(node);
+    }
+
+    /**
+     * Returns the number of copies of the given data value in the tree (0 if it
+     * is not in it), splaying its node.
+     *
+     * @param value the data value
+     * @return the number of copies
+     */
+    public int count(int value) {
+        int node = searchNode(value);
+        return node == NIL ? 0 : count[node];
+    }
+
+    /**
+     * Searches for a node with given data value and returns if it is found.
+     *
+     * @param value the data value
+     * @return whether node with data value was found
+     */
+    public boolean search(int value) {
+        return searchNode(value) != NIL;
+    }
+
+    /**
+     * Returns size (total number of nodes, or distinct data values) of tree.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots currently allocated for nodes.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Traverses the tree in post-order and prints to the console the number
+     * comparisons, zig-zig, and zig-zag operations at the provided number of operations.
+     *
+     * @param stepCount the number of completed operations
+     */
+    public void postOrderTraverse(int stepCount) {
+        StringBuilder text = new StringBuilder("Traversal at " + stepCount + ": ");
+        // Slots are boxed for the shared traversal, with null standing for NIL.
+        Tree.visitPostOrder(root == NIL ? null : root, n -> left[n] == NIL ? null : left[n],
+                n -> right[n] == NIL ? null : right[n], n -> text.append(data[n]).append(n == root ? ' ' : ','));
+        System.out.println(text);
+        System.out.println(compareCount + (compareCount > 1 ? " compares" : " compare"));
+        System.out.println(zigzigCount + (zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig"));
+        System.out.println(zigzagCount + (zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag"));
+    }
+
+    /**
+     * Hands out a slot for a new node, reusing a released slot if possible.
+     *
+     * @param value the data value
+     * @return the slot
+     */
+    private int allocate(int value) {
+        int node;
+        if (free != NIL) {
+            node = free;
+            free = left[node];
+        } else {
+            if (used == data.length) {
+                int capacity = 2 * data.length;
+                data = Arrays.copyOf(data, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                count = Arrays.copyOf(count, capacity);
+            }
+            node = used++;
+        }
+
+        data[node] = value;
+        parent[node] = NIL;
+        left[node] = NIL;
+        right[node] = NIL;
+        count[node] = 1;
+        return node;
+    }
+
+    /**
+     * Puts the slot on the free list.
+     *
+     * @param node the slot
+     */
+    private void release(int node) {
+        parent[node] = NIL;
+        right[node] = NIL;
+        left[node] = free;
+        free = node;
+    }
+
+    /**
+     * Removes specified node from the tree. The node is splayed to the root,
+     * then the maximum of its left subtree is splayed to the root of that
+     * subtree, where it has no right child, and adopts the right subtree.
+     *
+     * @param node the slot to remove
+     */
+    private void removeNode(int node) {
+        if (node == NIL)
+            return;
+
+        splayToRoot(node);
+        int l = left[node];
+        int r = right[node];
+        release(node);
+        if (r != NIL)
+            parent[r] = NIL;
+
+        if (l == NIL) {
+            root = r;
+        } else {
+            // Join the subtrees under the maximum of the left one.
+            parent[l] = NIL;
+            root = l;
+            int max = l;
+            while (right[max] != NIL)
+                max = right[max];
+            splayToRoot(max);
+
+            right[max] = r;
+            if (r != NIL)
+                parent[r] = max;
+        }
+
+        size--; // Decrement the tree size.
+    }
+
+    /**
+     * Searches for a node with given data value and returns its slot (or NIL).
+     *
+     * @param value the data value
+     * @return the found slot (or NIL)
+     */
+    private int searchNode(int value) {
+        int node = root;
+
+        while (node != NIL) {
+            if (value < data[node]) {
+                node = left[node];
+            } else if (value > data[node]) {
+                node = right[node];
+            } else {
+                splay(node);
+                return node;
+            }
+        }
+
+        return NIL;
+    }
+
+    /**
+     * Performs single clockwise rotation of subtree with root `p`.
+     *
+     * @param child the child slot
+     * @param p     the parent slot
+     */
+    private void zigRight(int child, int p) {
+        int grandparent = parent[p];
+        if (grandparent != NIL) {
+            compareCount++;
+            if (p == left[grandparent]) // P is a left child of G
+                left[grandparent] = child;
+            else // P is a right child of G
+                right[grandparent] = child;
+        }
+
+        if (right[child] != NIL)
+            parent[right[child]] = p;
+
+        parent[child] = grandparent;
+        parent[p] = child;
+        left[p] = right[child];
+        right[child] = p;
+    }
+
+    /**
+     * Performs single counter-clockwise rotation of subtree with root `p`.
+     *
+     * @param child the child slot
+     * @param p     the parent slot
+     */
+    private void zigLeft(int child, int p) {
+        int grandparent = parent[p];
+        if (grandparent != NIL) {
+            compareCount++;
+            if (p == left[grandparent])
+                left[grandparent] = child;
+            else
+                right[grandparent] = child;
+        }
+
+        if (left[child] != NIL)
+            parent[left[child]] = p;
+
+        parent[child] = grandparent;
+        parent[p] = child;
+        right[p] = left[child];
+        left[child] = p;
+    }
+
+    /**
+     * Splays the node up the tree, stopping just below the root like
+     * SplayTree.
+     *
+     * @param node the slot
+     */
+    private void splay(int node) {
+        boolean stopRule = false;
+
+        while (parent[node] != NIL) {
+            int p = parent[node];
+            int grandparent = parent[p];
+            if (grandparent == NIL) {
+                stopRule = true;
+                break;
+            } else {
+                compareCount++;
+                if (node == left[p]) {
+                    compareCount++;
+                    if (p == left[grandparent]) {
+                        zigRight(p, grandparent);
+                        zigRight(node, p);
+                        zigzigCount++;
+                    } else {
+                        zigRight(node, p);
+                        zigLeft(node, parent[node]);
+                        zigzagCount++;
+                    }
+                } else {
+                    compareCount++;
+                    if (p == left[grandparent]) {
+                        zigLeft(node, p);
+                        zigRight(node, parent[node]);
+                        zigzagCount++;
+                    } else {
+                        zigLeft(p, grandparent);
+                        zigLeft(node, p);
+                        zigzigCount++;
+                    }
+                }
+            }
+        }
+        root = stopRule ? parent[node] : node;
+    }
+
+    /**
+     * Splays the node all the way up to the root, performing the final zig that
+     * `splay` leaves out.
+     *
+     * @param node the slot
+     */
+    private void splayToRoot(int node) {
+        splay(node);
+        int p = parent[node];
+        if (p != NIL) {
+            if (node == left[p])
+                zigRight(node, p);
+            else
+                zigLeft(node, p);
+        }
+        root = node;
+    }
+
+    /**
+     * Main class entry point. Prints out the post-order traversal of the tree
+     * generated using the text file provided by name in command line argument and
+     * step to traverse integer value, like SplayTree.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java ArraySplayTree &lt;textFileName.txt&gt; &#91;step-to-traverse&#93;`
+     * <p>
+     * `java ArraySplayTree Operations.txt 6`
+     *
+     * @param args contains the file name string used to build tree
+     */
+    public static void main(String[] args) {
+        String textFileName = args[0];
+        int stepToTraverse = -1;
+
+        if (args.length == 2)
+            stepToTraverse = Integer.parseInt(args[1]);
+
+        ArraySplayTree splayTree = new ArraySplayTree();
+        int finalStep = stepToTraverse;
+        int[] stepCount = { 0 };
+
+        try {
+            OperationReader.replay(textFileName, (action, data) -> {
+                switch (action) {
+                case 'a':
+                    splayTree.insert(data);
+                    break;
+                case 'r':
+                    splayTree.remove(data);
+                    break;
+                case 'f':
+                    splayTree.search(data);
+                    break;
+                }
+                stepCount[0]++;
+
+                if (finalStep != -1 && finalStep == stepCount[0])
+                    splayTree.postOrderTraverse(stepCount[0]);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        if (stepToTraverse == -1) {
+            System.out.println(splayTree.compareCount + (splayTree.compareCount > 1 ? " compares" : " compare"));
+            System.out.println(splayTree.zigzigCount + (splayTree.zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig"));
+            System.out.println(splayTree.zigzagCount + (splayTree.zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag"));
+        }
+
+        if (stepToTraverse == -2)
+            splayTree.postOrderTraverse(stepCount[0]);
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Compact binary format for operation logs, with converters to and from the
+ * textual format and a memory-mapped replay.
+ * <p>
+ *
+ * A binary log starts with the four `MAGIC` bytes and a version byte. Each
+ * operation is then written as a one-byte opcode (0 to add, 1 to remove and 2
+ * to find) followed by the difference between its data value and the one of
+ * the previous operation (0 for the first), zig-zag encoded as a
+ * variable-length integer. Logs with locality therefore take two bytes per
+ * operation for most records and never more than six.
+ * <p>
+ *
+ * Replay maps the file in windows of up to `WINDOW_LENGTH` bytes and decodes
+ * the records straight from the mapped memory.
+ *
+ * @see OperationReader
+ * @see OperationHandler
+ */
+public class BinaryOperationLog {
+    /**
+     * Bytes identifying a binary operation log.
+     */
+    private static final byte[] MAGIC = { 'S', 'P', 'L', 'B' };
+
+    /**
+     * Version of the format.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Number of bytes before the first record.
+     */
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    /**
+     * Largest number of bytes taken by a record.
+     */
+    private static final int MAX_RECORD_LENGTH = 6;
+
+    /**
+     * Largest number of bytes mapped at once.
+     */
+    private static final long WINDOW_LENGTH = 1L << 30;
+
+    /**
+     * Action characters indexed by opcode.
+     */
+    private static final char[] ACTIONS = { 'a', 'r', 'f' };
+
+    /**
+     * An OperationHandler writing the operations it receives to a binary log.
+     */
+    public static class Writer implements OperationHandler, Closeable {
+        /**
+         * The stream the log is written to.
+         */
+        private final OutputStream out;
+
+        /**
+         * Data value of the previous operation.
+         */
+        private int previous = 0;
+
+        /**
+         * Constructs a new Writer creating (or truncating) the log file with the
+         * provided name and writing its header.
+         *
+         * @param fileName the name of the log file
+         * @throws IOException if the file cannot be written
+         */
+        public Writer(String fileName) throws IOException {
+            this(new FileOutputStream(fileName));
+        }
+
+        /**
+         * Constructs a new Writer writing the header and then the operations to
+         * the provided stream.
+         *
+         * @param out the stream
+         * @throws IOException if the stream cannot be written
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+            this.out.write(MAGIC);
+            this.out.write(VERSION);
+        }
+
+        /**
+         * Writes the operation.
+         *
+         * @param action the action character
+         * @param data   the data value
+         */
+        @Override
+        public void handle(char action, int data) {
+            try {
+                write(action, data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes the operation.
+         *
+         * @param action the action character
+         * @param data   the data value
+         * @throws IOException if the stream cannot be written
+         */
+        public void write(char action, int data) throws IOException {
+            out.write(opcode(action));
+            int delta = data - previous;
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ((zigzag & ~0x7F) != 0) {
+                out.write(zigzag & 0x7F | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write(zigzag);
+            previous = data;
+        }
+
+        /**
+         * Flushes and closes the log.
+         *
+         * @throws IOException if the stream cannot be written
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Determines whether the file with the provided name starts with the header
+     * of a binary operation log, whatever its version.
+     *
+     * @param fileName the name of the file
+     * @return whether the file is a binary log
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinary(String fileName) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(fileName))) {
+            byte[] header = new byte[HEADER_LENGTH];
+            int read = in.readNBytes(header, 0, HEADER_LENGTH);
+            if (read < HEADER_LENGTH)
+                return false;
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header[i] != MAGIC[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Replays every operation of the binary log file with the provided name.
+     *
+     * @param fileName the name of the log file
+     * @param handler  the handler receiving the operations
+     * @return the number of operations replayed
+     * @throws IOException if the file cannot be read or is not a binary log
+     */
+    public static long replay(String fileName, OperationHandler handler) throws IOException {
+        Path path = Paths.get(fileName);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!isBinary(fileName))
+                throw new IOException("Not a binary operation log: " + fileName);
+
+            ByteBuffer version = ByteBuffer.allocate(1);
+            channel.read(version, MAGIC.length);
+            if (version.get(0) != VERSION)
+                throw new IOException("Unsupported operation log version " + version.get(0) + ": " + fileName);
+
+            long count = 0;
+            long position = HEADER_LENGTH;
+            int previous = 0;
+
+            while (position < size) {
+                long length = Math.min(size - position, WINDOW_LENGTH);
+                boolean last = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                try {
+                    // Leave any record that may cross the window end to the next one.
+                    while (buffer.hasRemaining() && (last || buffer.remaining() >= MAX_RECORD_LENGTH)) {
+                        int opcode = buffer.get();
+                        if (opcode < 0 || opcode >= ACTIONS.length)
+                            throw new IOException("Unknown opcode " + opcode + " at byte "
+                                    + (position + buffer.position() - 1));
+
+                        int zigzag = 0;
+                        for (int shift = 0;; shift += 7) {
+                            byte b = buffer.get();
+                            zigzag |= (b & 0x7F) << shift;
+                            if (b >= 0)
+                                break;
+                        }
+
+                        previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                        handler.handle(ACTIONS[opcode], previous);
+                        count++;
+                    }
+                } catch (BufferUnderflowException e) {
+                    throw new IOException("Truncated operation log: " + fileName);
+                }
+
+                position += buffer.position();
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Converts a textual operation log into a binary one.
+     *
+     * @param textFileName   the name of the textual log
+     * @param binaryFileName the name of the binary log to write
+     * @return the number of operations converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long fromText(String textFileName, String binaryFileName) throws IOException {
+        try (Writer writer = new Writer(binaryFileName)) {
+            return OperationReader.replay(textFileName, writer);
+        }
+    }
+
+    /**
+     * Converts a binary operation log into a textual one, one operation per line.
+     *
+     * @param binaryFileName the name of the binary log
+     * @param textFileName   the name of the textual log to write
+     * @return the number of operations converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long toText(String binaryFileName, String textFileName) throws IOException {
+        try (OperationWriter writer = new OperationWriter(textFileName)) {
+            return replay(binaryFileName, writer);
+        }
+    }
+
+    /**
+     * Returns the opcode of the action character.
+     *
+     * @param action the action character
+     * @return the opcode
+     */
+    private static int opcode(char action) {
+        for (int opcode = 0; opcode < ACTIONS.length; opcode++) {
+            if (ACTIONS[opcode] == action)
+                return opcode;
+        }
+        throw new IllegalArgumentException("Unknown action: " + action);
+    }
+
+    /**
+     * Main class entry point. Converts the operation log between the textual and
+     * binary formats.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java BinaryOperationLog &lt;to-binary|to-text&gt; &lt;input&gt; &lt;output&gt;`
+     * <p>
+     * `java BinaryOperationLog to-binary Operations.txt Operations.bin`
+     *
+     * @param args contains the direction and the input and output file names
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        long count;
+        if (args[0].equals("to-binary"))
+            count = fromText(args[1], args[2]);
+        else if (args[0].equals("to-text"))
+            count = toText(args[1], args[2]);
+        else
+            throw new IllegalArgumentException("Unknown direction: " + args[0]);
+
+        System.out.println(count + (count > 1 ? " operations" : " operation") + " converted");
+    }
+}
@@ -0,0 +1,473 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A block-wise preprocessing pipeline run ahead of the Huffman encoding stage.
+ * <p>
+ *
+ * Each block of text goes through a Burrows-Wheeler transform, a move-to-front
+ * transform and a run-length encoding of the zero runs this produces. The
+ * resulting symbols are skewed heavily towards small values, which the
+ * Huffman stage then encodes far better than the raw characters. Blocks are
+ * independent of each other and are transformed in parallel.
+ * <p>
+ *
+ * The Burrows-Wheeler transform sorts the cyclic rotations of the block with a
+ * prefix doubling suffix array construction (O(n log n) using counting sorts),
+ * so large blocks remain practical. Zero runs are written in bijective base 2
+ * using the two symbols `RUN_A` and `RUN_B` (as done by bzip2), and every other
+ * move-to-front index is shifted up by one, for an alphabet of
+ * `SYMBOL_COUNT` symbols.
+ * <p>
+ *
+ * Only ASCII text is supported, like the rest of the Huffman implementation.
+ *
+ * @see Huffman
+ */
+public class BlockPipeline {
+    /**
+     * Default number of characters per block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 100000;
+
+    /**
+     * Number of distinct character values supported in the text.
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * Symbol adding one times the current weight to a zero run.
+     */
+    private static final char RUN_A = 0;
+
+    /**
+     * Symbol adding two times the current weight to a zero run.
+     */
+    private static final char RUN_B = 1;
+
+    /**
+     * Number of distinct symbols produced by the pipeline.
+     */
+    public static final int SYMBOL_COUNT = ALPHABET_SIZE + 1;
+
+    /**
+     * A single transformed block.
+     */
+    public static class Block {
+        /**
+         * Row of the original block among its sorted rotations.
+         */
+        public final int primary;
+
+        /**
+         * Number of characters of the original block.
+         */
+        public final int length;
+
+        /**
+         * The transformed symbols, one per `char`.
+         */
+        public final String symbols;
+
+        /**
+         * Constructs a new Block and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param primary the row of the original block
+         * @param length  the number of characters of the original block
+         * @param symbols the transformed symbols
+         */
+        public Block(int primary, int length, String symbols) {
+            this.primary = primary;
+            this.length = length;
+            this.symbols = symbols;
+        }
+    }
+
+    /**
+     * Number of characters per block.
+     */
+    private final int blockSize;
+
+    /**
+     * Constructs a new BlockPipeline using the default block size.
+     */
+    public BlockPipeline() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a new BlockPipeline using the provided block size.
+     *
+     * @param blockSize the number of characters per block
+     */
+    public BlockPipeline(int blockSize) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Splits the text into blocks and transforms them in parallel.
+     *
+     * @param text the ASCII text
+     * @return the transformed blocks
+     */
+    public Block[] forward(String text) {
+        Block[] blocks = new Block[(text.length() + blockSize - 1) / blockSize];
+
+        IntStream.range(0, blocks.length).parallel().forEach(i -> {
+            int start = i * blockSize;
+            char[] block = text.substring(start, Math.min(text.length(), start + blockSize)).toCharArray();
+            blocks[i] = forward(block);
+        });
+
+        return blocks;
+    }
+
+    /**
+     * Restores the text from blocks transformed by `forward`, inverting the
+     * blocks in parallel.
+     *
+     * @param blocks the transformed blocks
+     * @return the original text
+     */
+    public String inverse(Block[] blocks) {
+        char[][] texts = new char[blocks.length][];
+        IntStream.range(0, blocks.length).parallel().forEach(i -> texts[i] = inverse(blocks[i]));
+
+        StringBuilder text = new StringBuilder();
+        for (char[] block : texts)
+            text.append(block);
+        return text.toString();
+    }
+
+    /**
+     * Builds a Huffman encoding scheme from the symbol frequencies of the blocks.
+     * At least two symbols are always given a code so that the scheme can be
+     * decoded.
+     *
+     * @param blocks the transformed blocks
+     * @return the encoding scheme
+     */
+    public static Huffman buildModel(Block[] blocks) {
+        int[] frequencies = new int[SYMBOL_COUNT];
+        for (Block block : blocks) {
+            for (int i = 0; i < block.symbols.length(); i++)
+                frequencies[block.symbols.charAt(i)]++;
+        }
+
+        if (frequencies[RUN_A] == 0)
+            frequencies[RUN_A] = 1;
+        if (frequencies[RUN_B] == 0)
+            frequencies[RUN_B] = 1;
+
+        return new Huffman(frequencies);
+    }
+
+    /**
+     * Transforms a single block.
+     *
+     * @param block the block characters
+     * @return the transformed block
+     */
+    static Block forward(char[] block) {
+        char[] last = new char[block.length];
+        int primary = burrowsWheeler(block, last);
+        int[] indices = moveToFront(last);
+        return new Block(primary, block.length, encodeZeroRuns(indices));
+    }
+
+    /**
+     * Inverts the transform of a single block.
+     *
+     * @param block the transformed block
+     * @return the block characters
+     */
+    static char[] inverse(Block block) {
+        int[] indices = decodeZeroRuns(block.symbols, block.length);
+        char[] last = inverseMoveToFront(indices);
+        return inverseBurrowsWheeler(last, block.primary);
+    }
+
+    /**
+     * Sorts the cyclic rotations of the block and writes the last character of
+     * each sorted rotation. Rotations are sorted by prefix doubling, ranking
+     * rotations by their first 2^k characters at iteration k.
+     *
+     * @param block the block characters
+     * @param last  the array receiving the last column
+     * @return the row of the rotation starting at position 0
+     */
+    static int burrowsWheeler(char[] block, char[] last) {
+        int n = block.length;
+        if (n == 0)
+            return 0;
+
+        int[] order = new int[n];
+        int[] rank = new int[n];
+        int[] nextOrder = new int[n];
+        int[] nextRank = new int[n];
+        int[] count = new int[Math.max(ALPHABET_SIZE, n)];
+
+        // Sort rotations by their first character.
+        for (char c : block) {
+            if (c >= ALPHABET_SIZE)
+                throw new IllegalArgumentException("Not an ASCII character: " + (int) c);
+            count[c]++;
+        }
+        for (int c = 1; c < ALPHABET_SIZE; c++)
+            count[c] += count[c - 1];
+        for (int i = n - 1; i >= 0; i--)
+            order[--count[block[i]]] = i;
+
+        int classes = 1;
+        rank[order[0]] = 0;
+        for (int i = 1; i < n; i++) {
+            if (block[order[i]] != block[order[i - 1]])
+                classes++;
+            rank[order[i]] = classes - 1;
+        }
+
+        // Double the sorted prefix length until every rotation has its own rank.
+        for (int length = 1; length < n && classes < n; length <<= 1) {
+            // Rotations are already sorted by their second half, so sorting them
+            // stably by their first half sorts them by the whole prefix.
+            for (int i = 0; i < n; i++) {
+                int start = order[i] - length;
+                nextOrder[i] = start < 0 ? start + n : start;
+            }
+
+            Arrays.fill(count, 0, classes, 0);
+            for (int i = 0; i < n; i++)
+                count[rank[nextOrder[i]]]++;
+            for (int c = 1; c < classes; c++)
+                count[c] += count[c - 1];
+            for (int i = n - 1; i >= 0; i--)
+                order[--count[rank[nextOrder[i]]]] = nextOrder[i];
+
+            classes = 1;
+            nextRank[order[0]] = 0;
+            for (int i = 1; i < n; i++) {
+                int current = order[i];
+                int previous = order[i - 1];
+                if (rank[current] != rank[previous]
+                        || rank[(current + length) % n] != rank[(previous + length) % n])
+                    classes++;
+                nextRank[current] = classes - 1;
+            }
+
+            int[] temp = rank;
+            rank = nextRank;
+            nextRank = temp;
+        }
+
+        int primary = 0;
+        for (int i = 0; i < n; i++) {
+            last[i] = block[(order[i] + n - 1) % n];
+            if (order[i] == 0)
+                primary = i;
+        }
+        return primary;
+    }
+
+    /**
+     * Restores the block from the last column of its sorted rotations by
+     * following the last-to-first mapping backwards from the primary row.
+     *
+     * @param last    the last column
+     * @param primary the row of the rotation starting at position 0
+     * @return the block characters
+     */
+    static char[] inverseBurrowsWheeler(char[] last, int primary) {
+        int n = last.length;
+        int[] start = new int[ALPHABET_SIZE];
+        int[] lastToFirst = new int[n];
+
+        for (char c : last)
+            start[c]++;
+        for (int c = 0, sum = 0; c < ALPHABET_SIZE; c++) {
+            int temp = start[c];
+            start[c] = sum;
+            sum += temp;
+        }
+        for (int i = 0; i < n; i++)
+            lastToFirst[i] = start[last[i]]++;
+
+        char[] block = new char[n];
+        for (int i = n - 1, row = primary; i >= 0; i--) {
+            block[i] = last[row];
+            row = lastToFirst[row];
+        }
+        return block;
+    }
+
+    /**
+     * Replaces every character by its index in a list of recently seen
+     * characters, then moves it to the front of that list.
+     *
+     * @param text the characters
+     * @return the indices
+     */
+    static int[] moveToFront(char[] text) {
+        char[] list = new char[ALPHABET_SIZE];
+        for (char c = 0; c < ALPHABET_SIZE; c++)
+            list[c] = c;
+
+        int[] indices = new int[text.length];
+        for (int i = 0; i < text.length; i++) {
+            char c = text[i];
+            int index = 0;
+            while (list[index] != c)
+                index++;
+            System.arraycopy(list, 0, list, 1, index);
+            list[0] = c;
+            indices[i] = index;
+        }
+        return indices;
+    }
+
+    /**
+     * Inverts the move-to-front transform.
+     *
+     * @param indices the indices
+     * @return the characters
+     */
+    static char[] inverseMoveToFront(int[] indices) {
+        char[] list = new char[ALPHABET_SIZE];
+        for (char c = 0; c < ALPHABET_SIZE; c++)
+            list[c] = c;
+
+        char[] text = new char[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            int index = indices[i];
+            char c = list[index];
+            System.arraycopy(list, 0, list, 1, index);
+            list[0] = c;
+            text[i] = c;
+        }
+        return text;
+    }
+
+    /**
+     * Writes each run of zero indices as its length in bijective base 2 (least
+     * significant digit first) and shifts every other index up by one.
+     *
+     * @param indices the move-to-front indices
+     * @return the symbols
+     */
+    static String encodeZeroRuns(int[] indices) {
+        StringBuilder symbols = new StringBuilder(indices.length);
+        int run = 0;
+
+        for (int i = 0; i <= indices.length; i++) {
+            if (i < indices.length && indices[i] == 0) {
+                run++;
+                continue;
+            }
+
+            while (run > 0) {
+                if ((run & 1) == 1) {
+                    symbols.append(RUN_A);
+                    run = (run - 1) >> 1;
+                } else {
+                    symbols.append(RUN_B);
+                    run = (run - 2) >> 1;
+                }
+            }
+
+            if (i < indices.length)
+                symbols.append((char) (indices[i] + 1));
+        }
+
+        return symbols.toString();
+    }
+
+    /**
+     * Inverts the zero run-length encoding.
+     *
+     * @param symbols the symbols
+     * @param length  the number of indices encoded
+     * @return the move-to-front indices
+     */
+    static int[] decodeZeroRuns(String symbols, int length) {
+        int[] indices = new int[length];
+        int position = 0;
+        int run = 0;
+        int weight = 1;
+
+        for (int i = 0; i <= symbols.length(); i++) {
+            char symbol = i < symbols.length() ? symbols.charAt(i) : RUN_B + 1;
+
+            if (symbol == RUN_A || symbol == RUN_B) {
+                run += symbol == RUN_A ? weight : 2 * weight;
+                weight <<= 1;
+                continue;
+            }
+
+            // Indices are zero-initialized, so a run only advances the position.
+            position += run;
+            run = 0;
+            weight = 1;
+
+            if (i < symbols.length())
+                indices[position++] = symbol - 1;
+        }
+
+        if (position != length)
+            throw new IllegalArgumentException("Expected " + length + " indices but decoded " + position);
+        return indices;
+    }
+
+    /**
+     * Main class entry point. Prints out the number of bits needed to encode the
+     * text file provided by name in command line argument with the Huffman
+     * encoding alone and with the block pipeline ahead of it. The file must be
+     * ASCII text.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java BlockPipeline &lt;textFileName.txt&gt; &#91;block-size&#93;`
+     * <p>
+     * `java BlockPipeline Operations.txt`
+     *
+     * @param args contains the file name and optional block size
+     * @throws Exception if the file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        // Decoding would turn any other byte into U+FFFD, outside the alphabet.
+        byte[] bytes = Files.readAllBytes(Paths.get(args[0]));
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] < 0)
+                throw new IllegalArgumentException("Not an ASCII file: " + args[0] + " has byte 0x"
+                        + Integer.toHexString(bytes[i] & 0xFF) + " at offset " + i);
+        }
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        BlockPipeline pipeline = args.length == 2 ? new BlockPipeline(Integer.parseInt(args[1])) : new BlockPipeline();
+
+        int[] frequencies = new int[ALPHABET_SIZE];
+        for (int i = 0; i < text.length(); i++)
+            frequencies[text.charAt(i)]++;
+        long plainBits = new Huffman(frequencies).encode(text).length();
+
+        Block[] blocks = pipeline.forward(text);
+        Huffman model = buildModel(blocks);
+        long pipelineBits = 0;
+        Block[] decoded = new Block[blocks.length];
+        for (int i = 0; i < blocks.length; i++) {
+            String bits = model.encode(blocks[i].symbols);
+            // Each block header stores its primary row and length.
+            pipelineBits += bits.length() + 2 * Integer.SIZE;
+            decoded[i] = new Block(blocks[i].primary, blocks[i].length, model.decode(bits));
+        }
+
+        System.out.println(text.length() * 8L + " bits uncoded");
+        System.out.println(plainBits + " bits with Huffman");
+        System.out.println(pipelineBits + " bits with BWT, MTF, RLE and Huffman");
+        System.out.println(pipeline.inverse(decoded).equals(text) ? "Round trip succeeded" : "Round trip failed");
+    }
+}
@@ -0,0 +1,291 @@
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * A registry of prebuilt Huffman encoding schemes (codebooks) used to encode
+ * mixed content block by block.
+ * <p>
+ *
+ * For every block the encoder builds a character histogram once and uses it to
+ * estimate the encoded size under each registered codebook from its code
+ * lengths alone. The smallest one is selected and its id is written in front of
+ * the block as a fixed-width binary header, so no model needs to be built per
+ * block.
+ * <p>
+ *
+ * A codebook that has no code for some character of the block is only selected
+ * when no registered codebook covers the whole block, in which case the
+ * uncovered characters are dropped just like `Huffman.encode` does. A
+ * codebook built from a single character gives it an empty code, which cannot
+ * be decoded, so it is never selected.
+ *
+ * @see Huffman
+ * @see ArrayList
+ */
+public class CodebookRegistry {
+    /**
+     * The registered codebooks, indexed by id.
+     */
+    private ArrayList<Huffman> codebooks;
+
+    /**
+     * The code length tables of the registered codebooks, indexed by id.
+     */
+    private ArrayList<int[]> codeLengths;
+
+    /**
+     * Number of distinct character values supported by the codebooks.
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * Constructs a new empty CodebookRegistry.
+     */
+    public CodebookRegistry() {
+        codebooks = new ArrayList<>();
+        codeLengths = new ArrayList<>();
+    }
+
+    /**
+     * Registers the codebook and returns the id assigned to it.
+     *
+     * @param codebook the Huffman encoding scheme
+     * @return the codebook id
+     */
+    public int register(Huffman codebook) {
+        int[] lengths = new int[ALPHABET_SIZE];
+        boolean decodable = true;
+        for (char c = 0; c < ALPHABET_SIZE; c++) {
+            lengths[c] = codebook.codeLength(c);
+            if (lengths[c] == 0)
+                decodable = false;
+        }
+
+        // A lone character gets an empty code, which cannot be decoded, so such
+        // a codebook is kept without any code and never selected.
+        if (!decodable)
+            Arrays.fill(lengths, -1);
+
+        codebooks.add(codebook);
+        codeLengths.add(lengths);
+        return codebooks.size() - 1;
+    }
+
+    /**
+     * Returns the codebook registered with the given id.
+     *
+     * @param id the codebook id
+     * @return the codebook
+     */
+    public Huffman get(int id) {
+        return codebooks.get(id);
+    }
+
+    /**
+     * Returns the number of registered codebooks.
+     *
+     * @return the size
+     */
+    public int size() {
+        return codebooks.size();
+    }
+
+    /**
+     * Returns the number of bits used by the block header, which is just wide
+     * enough to hold any registered codebook id.
+     *
+     * @return the header width in bits
+     */
+    public int headerBits() {
+        return size() <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size() - 1);
+    }
+
+    /**
+     * Estimates the number of bits needed to encode the block with the given
+     * codebook, not counting the header.
+     *
+     * @param id    the codebook id
+     * @param block the text block
+     * @return the estimated number of bits (or -1 if some character has no code)
+     */
+    public long estimateBits(int id, String block) {
+        return estimateBits(codeLengths.get(id), histogram(block, 0, block.length()));
+    }
+
+    /**
+     * Selects the codebook that encodes the block in the fewest bits.
+     *
+     * @param block the text block
+     * @return the id of the selected codebook
+     */
+    public int select(String block) {
+        return select(histogram(block, 0, block.length()));
+    }
+
+    /**
+     * Encodes the text in blocks of `blockSize` characters, each preceded by the
+     * id of the codebook selected for it.
+     *
+     * @param text      the text string wished to be encoded
+     * @param blockSize the number of characters per block
+     * @return the string encoded
+     */
+    public String encode(String text, int blockSize) {
+        if (size() == 0)
+            throw new IllegalStateException("No codebook registered");
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+
+        StringBuilder encoding = new StringBuilder();
+        int headerBits = headerBits();
+
+        for (int start = 0; start < text.length(); start += blockSize) {
+            int end = Math.min(text.length(), start + blockSize);
+            int id = select(histogram(text, start, end));
+
+            for (int bit = headerBits - 1; bit >= 0; bit--)
+                encoding.append((id >>> bit & 1) == 0 ? '0' : '1');
+            encoding.append(codebooks.get(id).encode(text.substring(start, end)));
+        }
+
+        return encoding.toString();
+    }
+
+    /**
+     * Decodes a string produced by `encode` back into text. Only exact when every
+     * character of the original text had a code in its selected codebook.
+     *
+     * @param bits      the string encoded
+     * @param length    the number of characters of the original text
+     * @param blockSize the number of characters per block used when encoding
+     * @return the decoded text
+     */
+    public String decode(String bits, int length, int blockSize) {
+        StringBuilder text = new StringBuilder(length);
+        int headerBits = headerBits();
+        int position = 0;
+
+        for (int start = 0; start < length && position < bits.length(); start += blockSize) {
+            int id = 0;
+            for (int bit = 0; bit < headerBits; bit++)
+                id = id << 1 | (bits.charAt(position++) - '0');
+            position = codebooks.get(id).decode(bits, position, Math.min(blockSize, length - start), text);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Selects the codebook with the smallest estimate for the histogram,
+     * preferring codebooks able to encode every character.
+     *
+     * @param histogram the character frequencies of the block
+     * @return the id of the selected codebook
+     */
+    private int select(int[] histogram) {
+        int best = -1;
+        long bestBits = Long.MAX_VALUE;
+
+        for (int id = 0; id < size(); id++) {
+            long bits = estimateBits(codeLengths.get(id), histogram);
+            if (bits >= 0 && bits < bestBits) {
+                best = id;
+                bestBits = bits;
+            }
+        }
+
+        if (best != -1)
+            return best;
+
+        // No codebook covers the whole block, fall back on the shortest output
+        // once the uncovered characters are dropped.
+        for (int id = 0; id < size(); id++) {
+            long bits = 0;
+            boolean usable = false;
+            int[] lengths = codeLengths.get(id);
+            for (int c = 0; c < ALPHABET_SIZE; c++) {
+                if (lengths[c] > 0) {
+                    bits += (long) histogram[c] * lengths[c];
+                    usable = true;
+                }
+            }
+            if (usable && bits < bestBits) {
+                best = id;
+                bestBits = bits;
+            }
+        }
+
+        if (best == -1)
+            throw new IllegalStateException("No registered codebook can be decoded");
+        return best;
+    }
+
+    /**
+     * Sums the code lengths weighted by the character frequencies.
+     *
+     * @param lengths   the code length table
+     * @param histogram the character frequencies
+     * @return the number of bits (or -1 if some character has no code)
+     */
+    private static long estimateBits(int[] lengths, int[] histogram) {
+        if (histogram[ALPHABET_SIZE] > 0)
+            return -1;
+
+        long bits = 0;
+        for (int c = 0; c < ALPHABET_SIZE; c++) {
+            if (histogram[c] == 0)
+                continue;
+            if (lengths[c] < 0)
+                return -1;
+            bits += (long) histogram[c] * lengths[c];
+        }
+        return bits;
+    }
+
+    /**
+     * Counts the characters of the text between `start` (inclusive) and `end`
+     * (exclusive). Characters outside the supported alphabet are counted in the
+     * last slot, which never has a code.
+     *
+     * @param text  the text
+     * @param start the start position
+     * @param end   the end position
+     * @return the character frequencies
+     */
+    private static int[] histogram(String text, int start, int end) {
+        int[] histogram = new int[ALPHABET_SIZE + 1];
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            histogram[c < ALPHABET_SIZE ? c : ALPHABET_SIZE]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Main class entry point. Prompts user to entry string and prints out the
+     * encoded string using the codebooks built from each of the text files
+     * provided by name in command line arguments.
+     *
+     * Example:
+     * <p>
+     *
+     * `java CodebookRegistry &lt;block-size&gt; &#91;textFileName.txt...&#93;`
+     * <p>
+     *
+     * `java CodebookRegistry 64 Jabberwock.txt Operations.txt`
+     *
+     * @param args contains the block size and the file names used to build the
+     *             codebooks
+     */
+    public static void main(String[] args) {
+        int blockSize = Integer.parseInt(args[0]);
+        CodebookRegistry registry = new CodebookRegistry();
+        for (int i = 1; i < args.length; i++)
+            registry.register(new Huffman(args[i]));
+
+        Scanner sc = new Scanner(System.in);
+        String uncoded = sc.nextLine();
+        System.out.println(registry.encode(uncoded, blockSize));
+        sc.close();
+    }
+}
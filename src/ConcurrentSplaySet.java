@@ -0,0 +1,491 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe set of integers partitioned by key range into independently
+ * locked SplayTree shards.
+ * <p>
+ *
+ * Every shard covers a contiguous range of keys and is guarded by its own
+ * lock, so operations on different shards never contend, while each shard
+ * keeps the locality benefits of splaying. The load (number of operations) of
+ * each shard is recorded, and `rebalance` moves the shard boundaries so that
+ * the observed load is spread evenly: hot ranges end up split over more
+ * shards, cold ranges merged into fewer.
+ * <p>
+ *
+ * Rebalancing locks every shard, retires them and publishes freshly built
+ * ones. Operations that reach a retired shard simply retry on the new layout,
+ * so no global lock is taken on the operation path.
+ *
+ * @see SplayTree
+ */
+public class ConcurrentSplaySet {
+    /**
+     * A range of keys stored in its own tree.
+     */
+    private static final class Shard {
+        /**
+         * Lowest key of the range (the highest being below the next shard's).
+         */
+        final int low;
+
+        /**
+         * The tree storing the keys of the range.
+         */
+        final SplayTree tree;
+
+        /**
+         * The lock guarding the tree.
+         */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Number of operations performed on the shard since the last rebalance.
+         */
+        final LongAdder load = new LongAdder();
+
+        /**
+         * Whether the shard was replaced by a rebalance. Guarded by the lock.
+         */
+        boolean retired = false;
+
+        /**
+         * Constructs a new Shard and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param low  the lowest key of the range
+         * @param tree the tree storing the keys
+         */
+        Shard(int low, SplayTree tree) {
+            this.low = low;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * Action identifiers passed to `apply`.
+     */
+    private static final int INSERT = 0, REMOVE = 1, SEARCH = 2;
+
+    /**
+     * Target number of shards.
+     */
+    private final int shardCount;
+
+    /**
+     * The current shards, ordered by range.
+     */
+    private volatile Shard[] shards;
+
+    /**
+     * Lock serializing rebalances.
+     */
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+
+    /**
+     * Comparison operations of retired shards.
+     */
+    private long retiredCompareCount = 0;
+
+    /**
+     * Zigzig operations of retired shards.
+     */
+    private long retiredZigzigCount = 0;
+
+    /**
+     * Zigzag operations of retired shards.
+     */
+    private long retiredZigzagCount = 0;
+
+    /**
+     * Constructs a new ConcurrentSplaySet splitting the whole int range evenly
+     * into the provided number of shards.
+     *
+     * @param shardCount the number of shards
+     */
+    public ConcurrentSplaySet(int shardCount) {
+        this(shardCount, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new ConcurrentSplaySet splitting the expected key range
+     * evenly into the provided number of shards. Keys outside the range are
+     * still accepted, by the first and last shards.
+     *
+     * @param shardCount the number of shards
+     * @param minKey     the lowest expected key
+     * @param maxKey     the highest expected key
+     */
+    public ConcurrentSplaySet(int shardCount, int minKey, int maxKey) {
+        if (shardCount < 1)
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        if (minKey > maxKey)
+            throw new IllegalArgumentException("Empty key range: " + minKey + " > " + maxKey);
+
+        this.shardCount = (int) Math.min(shardCount, (long) maxKey - minKey + 1);
+        Shard[] initial = new Shard[this.shardCount];
+        long width = ((long) maxKey - minKey + 1) / this.shardCount;
+        for (int i = 0; i < initial.length; i++)
+            initial[i] = new Shard(i == 0 ? Integer.MIN_VALUE : (int) (minKey + i * width), new SplayTree());
+        shards = initial;
+    }
+
+    /**
+     * Inserts the key, unless it is already in the set.
+     *
+     * @param key the key
+     * @return whether the key was inserted
+     */
+    public boolean insert(int key) {
+        return apply(INSERT, key);
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param key the key
+     */
+    public void remove(int key) {
+        apply(REMOVE, key);
+    }
+
+    /**
+     * Searches for the key and returns if it is found.
+     *
+     * @param key the key
+     * @return whether the key was found
+     */
+    public boolean search(int key) {
+        return apply(SEARCH, key);
+    }
+
+    /**
+     * Returns the number of keys in the set.
+     *
+     * @return the size
+     */
+    public long size() {
+        long size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.tree.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the current number of shards.
+     *
+     * @return the number of shards
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the lowest key of every shard, in order.
+     *
+     * @return the shard boundaries
+     */
+    public int[] boundaries() {
+        Shard[] current = shards;
+        int[] boundaries = new int[current.length];
+        for (int i = 0; i < current.length; i++)
+            boundaries[i] = current[i].low;
+        return boundaries;
+    }
+
+    /**
+     * Returns the number of comparison operations across all shards.
+     *
+     * @return the number of compares
+     */
+    public long getCompareCount() {
+        return sumCounters(0);
+    }
+
+    /**
+     * Returns the number of zigzig operations across all shards.
+     *
+     * @return the number of zig-zigs
+     */
+    public long getZigzigCount() {
+        return sumCounters(1);
+    }
+
+    /**
+     * Returns the number of zigzag operations across all shards.
+     *
+     * @return the number of zig-zags
+     */
+    public long getZigzagCount() {
+        return sumCounters(2);
+    }
+
+    /**
+     * Rebalances only if the busiest shard received more than `threshold` times
+     * the mean load since the last rebalance. The mean is taken over the target
+     * number of shards, so that a set left with fewer shards (see `rebalance`)
+     * is split again once it holds enough keys.
+     *
+     * @param threshold the tolerated ratio of the maximum to the mean load
+     * @return whether a rebalance was performed
+     */
+    public boolean rebalanceIfSkewed(double threshold) {
+        Shard[] current = shards;
+        long total = 0;
+        long max = 0;
+        for (Shard shard : current) {
+            long load = shard.load.sum();
+            total += load;
+            max = Math.max(max, load);
+        }
+
+        if (total == 0 || max <= threshold * total / shardCount)
+            return false;
+        rebalance();
+        return true;
+    }
+
+    /**
+     * Moves the shard boundaries so that each shard receives an even share of
+     * the load observed since the last rebalance. The load of a shard is
+     * assumed to be spread evenly over its keys; shards without load since the
+     * last rebalance are balanced by number of keys.
+     * <p>
+     *
+     * Since every shard but the first starts at one of the keys, fewer shards
+     * than requested are built when the keys are too few or the load too
+     * concentrated on some of them.
+     */
+    public void rebalance() {
+        rebalanceLock.lock();
+        Shard[] current = shards;
+        for (Shard shard : current)
+            shard.lock.lock();
+
+        try {
+            // Gather the keys of every shard in order along with their weights.
+            int[][] keys = new int[current.length][];
+            long[] loads = new long[current.length];
+            long totalKeys = 0;
+            long totalLoad = 0;
+            for (int i = 0; i < current.length; i++) {
+                SplayTree tree = current[i].tree;
+                // Walk the tree without splaying it, which would skew the counters.
+                int[] shardKeys = new int[tree.size()];
+                int[] count = { 0 };
+                tree.inOrderTraverse(tree.root, key -> shardKeys[count[0]++] = key);
+                keys[i] = shardKeys;
+                loads[i] = current[i].load.sum();
+                totalKeys += shardKeys.length;
+                totalLoad += loads[i];
+            }
+
+            double totalWeight = 0;
+            double[] weights = new double[current.length];
+            for (int i = 0; i < current.length; i++) {
+                if (keys[i].length == 0)
+                    continue;
+                weights[i] = totalLoad == 0 ? 1 : (double) loads[i] / keys[i].length;
+                totalWeight += weights[i] * keys[i].length;
+            }
+
+            // Cut the ordered keys into shards of even weight.
+            Shard[] next = new Shard[shardCount];
+            int built = 0;
+            int[] buffer = new int[(int) totalKeys];
+            int buffered = 0;
+            int low = Integer.MIN_VALUE;
+            double accumulated = 0;
+
+            for (int i = 0; i < current.length; i++) {
+                for (int key : keys[i]) {
+                    double target = totalWeight * (built + 1) / shardCount;
+                    if (built < shardCount - 1 && buffered > 0 && accumulated >= target) {
+                        next[built++] = new Shard(low, SplayTree.fromSorted(Arrays.copyOf(buffer, buffered)));
+                        low = key;
+                        buffered = 0;
+                    }
+                    buffer[buffered++] = key;
+                    accumulated += weights[i];
+                }
+            }
+            next[built++] = new Shard(low, SplayTree.fromSorted(Arrays.copyOf(buffer, buffered)));
+
+            for (Shard shard : current) {
+                retiredCompareCount += shard.tree.getCompareCount();
+                retiredZigzigCount += shard.tree.getZigzigCount();
+                retiredZigzagCount += shard.tree.getZigzagCount();
+                shard.retired = true;
+            }
+            shards = Arrays.copyOf(next, built);
+        } finally {
+            for (Shard shard : current)
+                shard.lock.unlock();
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the action to the shard covering the key, retrying if that shard
+     * was retired by a concurrent rebalance.
+     *
+     * @param action the action identifier
+     * @param key    the key
+     * @return whether the key was inserted (for insertions) or found (for
+     *         searches)
+     */
+    private boolean apply(int action, int key) {
+        while (true) {
+            Shard shard = shardFor(shards, key);
+            shard.lock.lock();
+            try {
+                if (shard.retired)
+                    continue;
+
+                shard.load.increment();
+                switch (action) {
+                case INSERT:
+                    // SplayTree counts repeated insertions as copies, a set must not.
+                    return shard.tree.insertIfAbsent(key);
+                case REMOVE:
+                    shard.tree.remove(key);
+                    return true;
+                default:
+                    return shard.tree.search(key);
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the shard whose range covers the key.
+     *
+     * @param shards the shards, ordered by range
+     * @param key    the key
+     * @return the shard
+     */
+    private static Shard shardFor(Shard[] shards, int key) {
+        int low = 0;
+        int high = shards.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (shards[middle].low <= key)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return shards[low];
+    }
+
+    /**
+     * Sums one of the counters over the live and retired shards.
+     *
+     * @param counter 0 for compares, 1 for zig-zigs and 2 for zig-zags
+     * @return the sum
+     */
+    private long sumCounters(int counter) {
+        rebalanceLock.lock();
+        try {
+            long sum = counter == 0 ? retiredCompareCount : counter == 1 ? retiredZigzigCount : retiredZigzagCount;
+            for (Shard shard : shards) {
+                shard.lock.lock();
+                try {
+                    SplayTree tree = shard.tree;
+                    sum += counter == 0 ? tree.getCompareCount()
+                            : counter == 1 ? tree.getZigzigCount() : tree.getZigzagCount();
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
+            return sum;
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Main class entry point. Replays the operation log provided by name in
+     * command line argument with several threads sharing one set, rebalancing
+     * the shards whenever their load becomes skewed, and prints out the
+     * aggregated comparison, zig-zig and zig-zag counts.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java ConcurrentSplaySet &lt;textFileName.txt&gt; &#91;shards&#93; &#91;threads&#93;`
+     * <p>
+     * `java ConcurrentSplaySet Operations.txt 8 4`
+     *
+     * @param args contains the file name, the number of shards and of threads
+     * @throws Exception if the log cannot be read or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // Load the operations so that the threads only measure the set.
+        char[][] actions = { new char[1024] };
+        int[][] values = { new int[1024] };
+        int count = (int) OperationReader.replay(args[0], new OperationHandler() {
+            private int next = 0;
+
+            @Override
+            public void handle(char action, int data) {
+                if (next == actions[0].length) {
+                    actions[0] = Arrays.copyOf(actions[0], next * 2);
+                    values[0] = Arrays.copyOf(values[0], next * 2);
+                }
+                actions[0][next] = action;
+                values[0][next++] = data;
+            }
+        });
+
+        ConcurrentSplaySet set = new ConcurrentSplaySet(shardCount);
+        AtomicInteger next = new AtomicInteger();
+        Thread[] threads = new Thread[threadCount];
+        long start = System.nanoTime();
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < count) {
+                    switch (actions[0][i]) {
+                    case 'a':
+                        set.insert(values[0][i]);
+                        break;
+                    case 'r':
+                        set.remove(values[0][i]);
+                        break;
+                    case 'f':
+                        set.search(values[0][i]);
+                        break;
+                    }
+                    if ((i & 0xFFF) == 0xFFF)
+                        set.rebalanceIfSkewed(2);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        long elapsed = System.nanoTime() - start;
+        System.out.println(count + " operations on " + threadCount + " threads in " + elapsed / 1000000 + " ms");
+        System.out.println(set.size() + " keys in " + set.shardCount() + " shards starting at "
+                + Arrays.toString(set.boundaries()));
+        System.out.println(set.getCompareCount() + " compares");
+        System.out.println(set.getZigzigCount() + " Zig-Zigs");
+        System.out.println(set.getZigzagCount() + " Zig-Zags");
+    }
+}
@@ -0,0 +1,533 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe front end to a single SplayTree using flat combining (Hendler,
+ * Incze, Shavit and Tzafrir).
+ * <p>
+ *
+ * Each thread owns a slot in which it publishes its request. Whichever thread
+ * manages to take the combiner lock then drains the pending requests of every
+ * slot and applies them to the tree in a batch, while the other threads spin on
+ * their own slot until their result is posted. The tree is therefore only ever
+ * touched by one thread at a time, which keeps it hot in that thread's cache,
+ * and threads do not queue up on the lock.
+ * <p>
+ *
+ * A batch is applied in key order, so that consecutive requests walk nearby
+ * paths of the tree, and requests for the same key are merged: a search whose
+ * answer is already known from an earlier request of the batch for that key is
+ * answered without touching the tree.
+ * <p>
+ *
+ * Slots that have not published a request for `RECLAIM_AGE` combining passes,
+ * such as those of threads that have ended or left a pool, are unlinked by the
+ * combiner, so the cost of a pass does not grow with every thread that ever
+ * used the tree. A thread whose slot was unlinked links it again on its next
+ * request.
+ *
+ * @see SplayTree
+ */
+public class FlatCombiningSplayTree {
+    /**
+     * Slot states.
+     */
+    private static final int EMPTY = 0, PENDING = 1, DONE = 2;
+
+    /**
+     * Largest number of passes over the slots made by a combiner.
+     */
+    private static final int MAX_PASSES = 4;
+
+    /**
+     * Number of times a waiting thread spins before yielding its processor, so
+     * that a descheduled combiner can make progress.
+     */
+    private static final int SPIN_LIMIT = 64;
+
+    /**
+     * Number of combining passes after which a slot without requests is
+     * unlinked.
+     */
+    private static final int RECLAIM_AGE = 1024;
+
+    /**
+     * A thread's request and, once applied, its result.
+     */
+    private static final class Slot {
+        /**
+         * The action character of the request.
+         */
+        char action;
+
+        /**
+         * The key of the request.
+         */
+        int key;
+
+        /**
+         * The result of the request.
+         */
+        boolean result;
+
+        /**
+         * The state of the slot, written last by the requester and the combiner
+         * to publish the other fields.
+         */
+        volatile int state = EMPTY;
+
+        /**
+         * Whether the slot is linked in the list of slots. Only cleared by the
+         * combiner once it has unlinked the slot, and set again by the owner
+         * before linking it back.
+         */
+        volatile boolean active = true;
+
+        /**
+         * The combining pass that last applied a request of the slot, only
+         * accessed by the combiner.
+         */
+        long lastUsed;
+
+        /**
+         * The next registered slot.
+         */
+        Slot next;
+    }
+
+    /**
+     * The tree, only accessed while holding `lock`.
+     */
+    private final SplayTree tree = new SplayTree();
+
+    /**
+     * The combiner lock.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The most recently registered slot, heading the list of all slots.
+     */
+    private final AtomicReference<Slot> head = new AtomicReference<>();
+
+    /**
+     * The slot of each thread.
+     */
+    private final ThreadLocal<Slot> slot = ThreadLocal.withInitial(this::register);
+
+    /**
+     * The pending slots of the batch being combined.
+     */
+    private Slot[] batch = new Slot[16];
+
+    /**
+     * Number of combining passes made.
+     */
+    private long passCount = 0;
+
+    /**
+     * Number of batches combined.
+     */
+    private long batchCount = 0;
+
+    /**
+     * Number of requests combined.
+     */
+    private long requestCount = 0;
+
+    /**
+     * Number of requests answered without accessing the tree.
+     */
+    private long mergedCount = 0;
+
+    /**
+     * Inserts new node in tree with provided data value.
+     *
+     * @param data the data value
+     */
+    public void insert(int data) {
+        execute('a', data);
+    }
+
+    /**
+     * Removes the node from the tree with the given data value.
+     *
+     * @param data the data value
+     */
+    public void remove(int data) {
+        execute('r', data);
+    }
+
+    /**
+     * Searches for a node with given data value and returns if it is found.
+     *
+     * @param data the data value
+     * @return whether node with data value was found
+     */
+    public boolean search(int data) {
+        return execute('f', data);
+    }
+
+    /**
+     * Returns size (total number of nodes) of tree.
+     *
+     * @return the size
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return tree.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of comparison operations.
+     *
+     * @return the number of compares
+     */
+    public int getCompareCount() {
+        lock.lock();
+        try {
+            return tree.getCompareCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of zigzig operations.
+     *
+     * @return the number of zig-zigs
+     */
+    public int getZigzigCount() {
+        lock.lock();
+        try {
+            return tree.getZigzigCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of zigzag operations.
+     *
+     * @return the number of zig-zags
+     */
+    public int getZigzagCount() {
+        lock.lock();
+        try {
+            return tree.getZigzagCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the mean number of requests combined per batch.
+     *
+     * @return the mean batch size
+     */
+    public double getMeanBatchSize() {
+        lock.lock();
+        try {
+            return batchCount == 0 ? 0 : (double) requestCount / batchCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests answered without accessing the tree.
+     *
+     * @return the number of merged requests
+     */
+    public long getMergedCount() {
+        lock.lock();
+        try {
+            return mergedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the request in the calling thread's slot and waits for it to be
+     * applied, combining the pending requests whenever the lock is free.
+     *
+     * @param action the action character
+     * @param data   the data value
+     * @return the result of the request
+     */
+    private boolean execute(char action, int data) {
+        Slot own = slot.get();
+        own.action = action;
+        own.key = data;
+        own.state = PENDING;
+
+        for (int spins = 0; own.state != DONE; spins++) {
+            // The combiner may have unlinked the slot before seeing the request.
+            if (!own.active) {
+                own.active = true;
+                push(own);
+            }
+
+            if (lock.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    lock.unlock();
+                }
+            } else if (spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        own.state = EMPTY;
+        return own.result;
+    }
+
+    /**
+     * Applies the pending requests of every slot to the tree, in batches, until
+     * a pass finds none or `MAX_PASSES` passes were made, and unlinks the slots
+     * left idle for `RECLAIM_AGE` passes. Must be called with the lock held.
+     */
+    private void combine() {
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            passCount++;
+            int count = 0;
+            Slot previous = null;
+            Slot next;
+            for (Slot s = head.get(); s != null; s = next) {
+                // Read before the owner of an unlinked slot may push it back.
+                next = s.next;
+                if (s.state == PENDING) {
+                    s.lastUsed = passCount;
+                    if (count == batch.length)
+                        batch = Arrays.copyOf(batch, count * 2);
+                    batch[count++] = s;
+                } else if (previous != null && passCount - s.lastUsed > RECLAIM_AGE) {
+                    // The head is left in place since new slots are pushed on it
+                    // concurrently.
+                    previous.next = next;
+                    s.active = false;
+                    continue;
+                }
+                previous = s;
+            }
+            if (count == 0)
+                return;
+
+            sortByKey(count);
+            apply(count);
+            batchCount++;
+            requestCount += count;
+        }
+    }
+
+    /**
+     * Applies the requests of the batch, sorted by key, and posts their results.
+     * Requests for a key are applied in the order of the batch, and searches
+     * whose answer follows from an earlier request for the same key are merged.
+     *
+     * @param count the number of requests in the batch
+     */
+    private void apply(int count) {
+        boolean known = false;
+        boolean present = false;
+        int previous = 0;
+
+        for (int i = 0; i < count; i++) {
+            Slot s = batch[i];
+            if (i > 0 && s.key != previous)
+                known = false;
+            previous = s.key;
+
+            switch (s.action) {
+            case 'a':
+                tree.insert(s.key);
+                known = present = true;
+                s.result = true;
+                break;
+            case 'r':
+                // Other copies of the key may remain, so the next search must look.
+                tree.remove(s.key);
+                known = false;
+                s.result = true;
+                break;
+            case 'f':
+                if (known) {
+                    mergedCount++;
+                } else {
+                    present = tree.search(s.key);
+                    known = true;
+                }
+                s.result = present;
+                break;
+            }
+
+            batch[i] = null;
+            s.state = DONE;
+        }
+    }
+
+    /**
+     * Sorts the first requests of the batch by key, keeping requests for the
+     * same key in their order. Batches hold at most one request per thread, so
+     * an insertion sort is enough.
+     *
+     * @param count the number of requests in the batch
+     */
+    private void sortByKey(int count) {
+        for (int i = 1; i < count; i++) {
+            Slot s = batch[i];
+            int j = i - 1;
+            while (j >= 0 && batch[j].key > s.key) {
+                batch[j + 1] = batch[j];
+                j--;
+            }
+            batch[j + 1] = s;
+        }
+    }
+
+    /**
+     * Registers a new slot for the calling thread.
+     *
+     * @return the slot
+     */
+    private Slot register() {
+        Slot s = new Slot();
+        push(s);
+        return s;
+    }
+
+    /**
+     * Links the slot at the head of the list of slots.
+     *
+     * @param s the slot
+     */
+    private void push(Slot s) {
+        while (true) {
+            Slot first = head.get();
+            s.next = first;
+            if (head.compareAndSet(first, s))
+                return;
+        }
+    }
+
+    /**
+     * Main class entry point. Replays the operation log provided by name in
+     * command line argument from several threads, once through flat combining and
+     * once through a tree guarded by `synchronized`, and prints out the time
+     * taken by each.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java FlatCombiningSplayTree &lt;textFileName.txt&gt; &#91;threads&#93; &#91;repetitions&#93;`
+     * <p>
+     * `java FlatCombiningSplayTree Operations.txt 8 100`
+     *
+     * @param args contains the file name, the number of threads and of times
+     *             the log is replayed
+     * @throws Exception if the log cannot be read or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        // Load the operations so that the threads only measure the trees.
+        char[][] actions = { new char[1024] };
+        int[][] values = { new int[1024] };
+        int length = (int) OperationReader.replay(args[0], new OperationHandler() {
+            private int next = 0;
+
+            @Override
+            public void handle(char action, int data) {
+                if (next == actions[0].length) {
+                    actions[0] = Arrays.copyOf(actions[0], next * 2);
+                    values[0] = Arrays.copyOf(values[0], next * 2);
+                }
+                actions[0][next] = action;
+                values[0][next++] = data;
+            }
+        });
+        int count = length * repetitions;
+
+        FlatCombiningSplayTree combining = new FlatCombiningSplayTree();
+        long elapsed = run(threadCount, count, (action, data) -> {
+            switch (action) {
+            case 'a':
+                combining.insert(data);
+                break;
+            case 'r':
+                combining.remove(data);
+                break;
+            case 'f':
+                combining.search(data);
+                break;
+            }
+        }, actions[0], values[0], length);
+        System.out.println("Flat combining: " + count + " operations on " + threadCount + " threads in "
+                + elapsed / 1000000 + " ms, " + String.format("%.1f", combining.getMeanBatchSize())
+                + " requests per batch, " + combining.getMergedCount() + " merged");
+
+        SplayTree synchronizedTree = new SplayTree();
+        elapsed = run(threadCount, count, (action, data) -> {
+            synchronized (synchronizedTree) {
+                switch (action) {
+                case 'a':
+                    synchronizedTree.insert(data);
+                    break;
+                case 'r':
+                    synchronizedTree.remove(data);
+                    break;
+                case 'f':
+                    synchronizedTree.search(data);
+                    break;
+                }
+            }
+        }, actions[0], values[0], length);
+        System.out.println("Synchronized: " + count + " operations on " + threadCount + " threads in "
+                + elapsed / 1000000 + " ms");
+    }
+
+    /**
+     * Passes the operations to the handler from several threads, each taking the
+     * next operation not taken yet, and returns the time taken in nanoseconds.
+     *
+     * @param threadCount the number of threads
+     * @param count       the number of operations to pass
+     * @param handler     the handler receiving the operations
+     * @param actions     the action characters of the log
+     * @param values      the data values of the log
+     * @param length      the number of operations in the log, replayed as many
+     *                    times as needed
+     * @return the elapsed time
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static long run(int threadCount, int count, OperationHandler handler, char[] actions, int[] values,
+            int length) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        Thread[] threads = new Thread[threadCount];
+        long start = System.nanoTime();
+
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < count)
+                    handler.handle(actions[i % length], values[i % length]);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        return System.nanoTime() - start;
+    }
+}
@@ -34,7 +34,17 @@ public class HashMap<T> {
      * 
      */
     public HashMap() {
-        this.data = new ArrayList<>(DEFAULT_LENGTH);
+        this(DEFAULT_LENGTH);
+    }
+
+    /**
+     * Constructs a new HashMap able to hold keys up to (excluding) the provided
+     * length, for alphabets extending past the ASCII set.
+     * 
+     * @param length the number of possible keys
+     */
+    public HashMap(int length) {
+        this.data = new ArrayList<>(length);
         this.filled = 0;
     }
 
@@ -1,5 +1,6 @@
 import java.util.Scanner;
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.FileReader;
 
 /**
  * A Huffman Code extension of the Tree class. Implements the Huffman encoding
@@ -29,6 +30,22 @@ public class Huffman extends Tree {
      */
     private HashMap<String> codeMap;
 
+    /**
+     * Number of distinct character values supported by the frequency histogram
+     * (the ASCII set, matching the capacity of HashMap).
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * Number of characters read from the text file at a time.
+     */
+    private static final int BUFFER_LENGTH = 8192;
+
+    /**
+     * Number of distinct character values the `codeMap` can hold.
+     */
+    private int alphabetSize = ALPHABET_SIZE;
+
     /**
      * Constructs a new Huffman with an empty `codeMap`.
      */
@@ -53,6 +70,26 @@ public class Huffman extends Tree {
         buildCodeMap((HuffmanNode) root);
     }
 
+    /**
+     * Constructs a new Huffman from a frequency table indexed by character value,
+     * which may extend past the ASCII set. Characters are given occurrence indices
+     * in increasing order of value.
+     * 
+     * @param frequencies the frequency of each character
+     */
+    public Huffman(int[] frequencies) {
+        HashMap<HuffmanNode> map = new HashMap<HuffmanNode>(frequencies.length);
+        for (char c = 0; c < frequencies.length; c++) {
+            if (frequencies[c] > 0)
+                map.put(c, new HuffmanNode(c, frequencies[c], map.size(), null));
+        }
+        alphabetSize = frequencies.length;
+        codeMap = new HashMap<String>(frequencies.length);
+        buildTree(buildPriorityQueue(map));
+        assignCodes((HuffmanNode) root, "");
+        buildCodeMap((HuffmanNode) root);
+    }
+
     /**
      * Assigns the codes for each node in the tree based on its position respective
      * to its parent.
@@ -93,10 +130,91 @@ public class Huffman extends Tree {
      * @return the string encoded
      */
     public String encode(String text) {
-        String encoding = "";
-        for (char c : text.toCharArray())
-            encoding += codeMap.get(c) == null ? "" : codeMap.get(c);
-        return encoding;
+        int length = text.length();
+        String[] codes = new String[length];
+        int totalBits = 0;
+
+        // First pass gathers the code of every character and sums their lengths
+        // so the output buffer is allocated exactly once.
+        for (int i = 0; i < length; i++) {
+            String code = codeMap.get(text.charAt(i));
+            codes[i] = code;
+            if (code != null)
+                totalBits += code.length();
+        }
+
+        // Second pass packs the codes back to back.
+        StringBuilder encoding = new StringBuilder(totalBits);
+        for (String code : codes) {
+            if (code != null)
+                encoding.append(code);
+        }
+        return encoding.toString();
+    }
+
+    /**
+     * Decodes the given bit string using the Huffman encoding scheme built.
+     * 
+     * @param bits the string of '0' and '1' characters to decode
+     * @return the decoded text
+     */
+    public String decode(String bits) {
+        StringBuilder text = new StringBuilder();
+        decode(bits, 0, Integer.MAX_VALUE, text);
+        return text.toString();
+    }
+
+    /**
+     * Decodes up to `count` characters from the bit string starting at position
+     * `from` and appends them to the provided builder. Stops early when the bit
+     * string is exhausted.
+     * 
+     * @param bits  the string of '0' and '1' characters to decode
+     * @param from  the position of the first bit to decode
+     * @param count the maximum number of characters to decode
+     * @param text  the builder receiving the decoded characters
+     * @return the position following the last bit consumed
+     */
+    public int decode(String bits, int from, int count, StringBuilder text) {
+        if (root == null)
+            return from;
+        if (root.left == null && root.right == null)
+            throw new IllegalStateException("Cannot decode with a single character encoding scheme");
+
+        int position = from;
+        for (int decoded = 0; decoded < count && position < bits.length(); decoded++) {
+            HuffmanNode node = (HuffmanNode) root;
+            while (node.left != null || node.right != null) {
+                if (position == bits.length())
+                    throw new IllegalArgumentException("Truncated code at bit " + position);
+                node = (HuffmanNode) (bits.charAt(position++) == '0' ? node.left : node.right);
+            }
+            text.append(node.character);
+        }
+        return position;
+    }
+
+    /**
+     * Returns the code assigned to the given character, or null if the character
+     * has no code in this encoding scheme.
+     * 
+     * @param c the character
+     * @return the code
+     */
+    public String getCode(char c) {
+        return c >= alphabetSize ? null : codeMap.get(c);
+    }
+
+    /**
+     * Returns the length of the code assigned to the given character, or -1 if the
+     * character has no code in this encoding scheme.
+     * 
+     * @param c the character
+     * @return the code length
+     */
+    public int codeLength(char c) {
+        String code = getCode(c);
+        return code == null ? -1 : code.length();
     }
 
     /**
@@ -162,26 +280,48 @@ public class Huffman extends Tree {
      */
     private static HashMap<HuffmanNode> buildPriorityMap(String fileName) {
         HashMap<HuffmanNode> map = new HashMap<HuffmanNode>();
-        try {
-            File file = new File(fileName);
-            Scanner fileScanner = new Scanner(file);
-            while (fileScanner.hasNextLine()) {
-                String line = fileScanner.nextLine();
-                for (char c : line.toCharArray()) {
-                    if (map.containsKey(c)) {
-                        map.get(c).frequency = map.get(c).frequency + 1;
-                    } else {
-                        map.put(c, new HuffmanNode(c, 1, (map.size() + 1) - 1, null));
-                    }
+        int[] frequencies = new int[ALPHABET_SIZE];
+        char[] firstOccurrences = new char[ALPHABET_SIZE];
+        int distinct = 0;
+
+        // Count every character into a flat histogram instead of going through the
+        // map for each one; line terminators are skipped like `Scanner.nextLine`.
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            char[] buffer = new char[BUFFER_LENGTH];
+            int read;
+            while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (isLineTerminator(c))
+                        continue;
+                    if (frequencies[c]++ == 0)
+                        firstOccurrences[distinct++] = c;
                 }
             }
-            fileScanner.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
+
+        // Populate the map in order of first appearance so occurrence indices
+        // match the ones a character-by-character scan would have assigned.
+        for (int i = 0; i < distinct; i++) {
+            char c = firstOccurrences[i];
+            map.put(c, new HuffmanNode(c, frequencies[c], i, null));
+        }
         return map;
     }
 
+    /**
+     * Determines whether the character is one of the line separators recognized
+     * by `Scanner.nextLine`.
+     *
+     * @param c the character
+     * @return whether the character terminates a line
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+    }
+
     /**
      * Main class entry point. Prompts user to entry string and prints out the
      * encoded string using the Huffman encoding sheme generated using the text file
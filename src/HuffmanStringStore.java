@@ -0,0 +1,483 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.Arrays;
+
+/**
+ * A compact in-memory store of ASCII strings kept Huffman encoded in a single
+ * packed byte arena.
+ * <p>
+ *
+ * The encoding scheme is trained once from a sample of strings. Every ASCII
+ * character is given a code (unseen characters are counted once), so any ASCII
+ * string can be stored afterwards. Each entry is written to the arena starting
+ * on a byte boundary as its character count (a variable-length integer)
+ * followed by the concatenated codes, padded with zero bits. Entries are
+ * addressed by id through an offset index and decoded on demand.
+ * <p>
+ *
+ * Since the encoding of a string is deterministic, equality and prefix tests
+ * compare the encoded bytes directly without decoding the entry, and an
+ * open-addressing hash index over the encoded bytes gives constant time
+ * lookups of ids by string.
+ *
+ * @see Huffman
+ */
+public class HuffmanStringStore {
+    /**
+     * Number of distinct character values supported by the store.
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * Default number of bytes initially reserved for the arena.
+     */
+    private static final int DEFAULT_ARENA_LENGTH = 1024;
+
+    /**
+     * Default number of entries initially reserved for the offset index.
+     */
+    private static final int DEFAULT_INDEX_LENGTH = 16;
+
+    /**
+     * The encoding scheme trained from the sample.
+     */
+    private final Huffman model;
+
+    /**
+     * Code of every character, right-aligned.
+     */
+    private final long[] codes = new long[ALPHABET_SIZE];
+
+    /**
+     * Code length of every character.
+     */
+    private final int[] codeLengths = new int[ALPHABET_SIZE];
+
+    /**
+     * Flattened decoding tree. The children of node i are found at positions 2i
+     * and 2i + 1, and a leaf of character c is stored as -(c + 1).
+     */
+    private int[] decodeTree;
+
+    /**
+     * The packed entries.
+     */
+    private byte[] arena = new byte[DEFAULT_ARENA_LENGTH];
+
+    /**
+     * Number of arena bytes in use.
+     */
+    private int arenaLength = 0;
+
+    /**
+     * Arena offset of every entry, followed by the end of the last entry.
+     */
+    private int[] offsets = new int[DEFAULT_INDEX_LENGTH + 1];
+
+    /**
+     * Number of entries.
+     */
+    private int size = 0;
+
+    /**
+     * Hash index of entry ids (plus one, zero marking a free slot).
+     */
+    private int[] hashIndex = new int[2 * DEFAULT_INDEX_LENGTH];
+
+    /**
+     * Scratch buffer used to encode strings being looked up.
+     */
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Constructs a new HuffmanStringStore with an encoding scheme trained from
+     * the provided sample of strings.
+     *
+     * @param sample the sample strings
+     */
+    public HuffmanStringStore(String[] sample) {
+        int[] frequencies = new int[ALPHABET_SIZE];
+        Arrays.fill(frequencies, 1);
+        for (String s : sample) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c >= ALPHABET_SIZE)
+                    throw new IllegalArgumentException("Not an ASCII character: " + (int) c);
+                frequencies[c]++;
+            }
+        }
+
+        model = new Huffman(frequencies);
+        decodeTree = new int[4 * ALPHABET_SIZE];
+        int nodes = 1;
+
+        for (char c = 0; c < ALPHABET_SIZE; c++) {
+            String code = model.getCode(c);
+            if (code.length() > Long.SIZE - 8)
+                throw new IllegalStateException("Code too long for character: " + (int) c);
+
+            codeLengths[c] = code.length();
+            int node = 0;
+            for (int i = 0; i < code.length(); i++) {
+                int bit = code.charAt(i) - '0';
+                codes[c] = codes[c] << 1 | bit;
+
+                int slot = 2 * node + bit;
+                if (i == code.length() - 1) {
+                    decodeTree[slot] = -(c + 1);
+                } else {
+                    if (decodeTree[slot] == 0)
+                        decodeTree[slot] = nodes++;
+                    node = decodeTree[slot];
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes and appends the string to the store.
+     *
+     * @param s the ASCII string
+     * @return the id of the new entry
+     */
+    public int add(String s) {
+        int length = encode(s);
+        ensureArenaCapacity(arenaLength + length);
+        System.arraycopy(scratch, 0, arena, arenaLength, length);
+
+        if (size + 1 == offsets.length)
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+        offsets[size] = arenaLength;
+        arenaLength += length;
+        offsets[++size] = arenaLength;
+
+        if (2 * size > hashIndex.length)
+            rehash(2 * hashIndex.length);
+        insertIntoIndex(size - 1);
+
+        return size - 1;
+    }
+
+    /**
+     * Decodes the entry with the given id.
+     *
+     * @param id the entry id
+     * @return the string
+     */
+    public String get(int id) {
+        checkId(id);
+        int position = offsets[id];
+        int length = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = arena[position++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0)
+                break;
+        }
+
+        char[] text = new char[length];
+        long bit = (long) position * 8;
+        for (int i = 0; i < length; i++) {
+            int node = 0;
+            do {
+                int value = arena[(int) (bit >>> 3)] >>> (7 - (int) (bit & 7)) & 1;
+                node = decodeTree[2 * node + value];
+                bit++;
+            } while (node > 0);
+            text[i] = (char) (-node - 1);
+        }
+        return new String(text);
+    }
+
+    /**
+     * Determines whether the entry with the given id is equal to the string,
+     * comparing encoded bytes.
+     *
+     * @param id the entry id
+     * @param s  the string
+     * @return whether they are equal
+     */
+    public boolean contentEquals(int id, String s) {
+        checkId(id);
+        if (!isAscii(s))
+            return false;
+        int length = encode(s);
+        return Arrays.equals(arena, offsets[id], offsets[id + 1], scratch, 0, length);
+    }
+
+    /**
+     * Determines whether the entry with the given id starts with the prefix,
+     * comparing encoded bits.
+     *
+     * @param id     the entry id
+     * @param prefix the prefix
+     * @return whether the entry starts with the prefix
+     */
+    public boolean startsWith(int id, String prefix) {
+        checkId(id);
+        if (!isAscii(prefix))
+            return false;
+        int entryStart = offsets[id];
+        int entryLength = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = arena[entryStart++];
+            entryLength |= (b & 0x7F) << shift;
+            if (b >= 0)
+                break;
+        }
+        if (entryLength < prefix.length())
+            return false;
+
+        // Encode the prefix and skip over its own character count.
+        encode(prefix);
+        int prefixStart = 0;
+        while (scratch[prefixStart++] < 0)
+            ;
+
+        long bits = 0;
+        for (int i = 0; i < prefix.length(); i++)
+            bits += codeLengths[prefix.charAt(i)];
+
+        int fullBytes = (int) (bits >>> 3);
+        if (!Arrays.equals(arena, entryStart, entryStart + fullBytes, scratch, prefixStart, prefixStart + fullBytes))
+            return false;
+
+        int remainder = (int) (bits & 7);
+        if (remainder == 0)
+            return true;
+        int mask = 0xFF00 >>> remainder & 0xFF;
+        return ((arena[entryStart + fullBytes] ^ scratch[prefixStart + fullBytes]) & mask) == 0;
+    }
+
+    /**
+     * Returns the id of an entry equal to the string, or -1 if there is none
+     * (as for any string that is not ASCII, since none can be stored).
+     *
+     * @param s the string
+     * @return the entry id
+     */
+    public int find(String s) {
+        if (!isAscii(s))
+            return -1;
+        int length = encode(s);
+        int mask = hashIndex.length - 1;
+
+        for (int slot = hash(scratch, 0, length) & mask;; slot = (slot + 1) & mask) {
+            int id = hashIndex[slot] - 1;
+            if (id < 0)
+                return -1;
+            if (Arrays.equals(arena, offsets[id], offsets[id + 1], scratch, 0, length))
+                return id;
+        }
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes occupied by the encoded entries.
+     *
+     * @return the arena length
+     */
+    public int arenaLength() {
+        return arenaLength;
+    }
+
+    /**
+     * Returns the encoding scheme trained from the sample.
+     *
+     * @return the encoding scheme
+     */
+    public Huffman getModel() {
+        return model;
+    }
+
+    /**
+     * Determines whether every character of the string is ASCII, and can thus
+     * be encoded.
+     *
+     * @param s the string
+     * @return whether the string is ASCII
+     */
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= ALPHABET_SIZE)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the string into the scratch buffer.
+     *
+     * @param s the ASCII string
+     * @return the number of bytes written
+     */
+    private int encode(String s) {
+        long bits = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= ALPHABET_SIZE)
+                throw new IllegalArgumentException("Not an ASCII character: " + (int) c);
+            bits += codeLengths[c];
+        }
+
+        int maxLength = 5 + (int) ((bits + 7) >>> 3);
+        if (scratch.length < maxLength)
+            scratch = new byte[Math.max(maxLength, 2 * scratch.length)];
+
+        int position = 0;
+        int length = s.length();
+        while ((length & ~0x7F) != 0) {
+            scratch[position++] = (byte) (length & 0x7F | 0x80);
+            length >>>= 7;
+        }
+        scratch[position++] = (byte) length;
+
+        // Accumulate codes in a 64-bit buffer and flush whole bytes.
+        long buffer = 0;
+        int buffered = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            int codeLength = codeLengths[c];
+            if (buffered + codeLength > Long.SIZE) {
+                while (buffered >= 8) {
+                    buffered -= 8;
+                    scratch[position++] = (byte) (buffer >>> buffered);
+                }
+            }
+            buffer = buffer << codeLength | codes[c];
+            buffered += codeLength;
+        }
+        while (buffered >= 8) {
+            buffered -= 8;
+            scratch[position++] = (byte) (buffer >>> buffered);
+        }
+        if (buffered > 0)
+            scratch[position++] = (byte) (buffer << (8 - buffered));
+
+        return position;
+    }
+
+    /**
+     * Grows the arena to hold at least the provided number of bytes.
+     *
+     * @param minLength the minimum length
+     */
+    private void ensureArenaCapacity(int minLength) {
+        if (minLength > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(minLength, 2 * arena.length));
+    }
+
+    /**
+     * Rebuilds the hash index with the provided number of slots.
+     *
+     * @param length the number of slots (a power of two)
+     */
+    private void rehash(int length) {
+        hashIndex = new int[length];
+        for (int id = 0; id < size - 1; id++)
+            insertIntoIndex(id);
+    }
+
+    /**
+     * Inserts the entry into the hash index, keeping the first entry when equal
+     * strings were added.
+     *
+     * @param id the entry id
+     */
+    private void insertIntoIndex(int id) {
+        int mask = hashIndex.length - 1;
+        int start = offsets[id];
+        int end = offsets[id + 1];
+
+        for (int slot = hash(arena, start, end - start) & mask;; slot = (slot + 1) & mask) {
+            int other = hashIndex[slot] - 1;
+            if (other < 0) {
+                hashIndex[slot] = id + 1;
+                return;
+            }
+            if (Arrays.equals(arena, offsets[other], offsets[other + 1], arena, start, end))
+                return;
+        }
+    }
+
+    /**
+     * Hashes the bytes.
+     *
+     * @param bytes  the bytes
+     * @param from   the first position
+     * @param length the number of bytes
+     * @return the hash
+     */
+    private static int hash(byte[] bytes, int from, int length) {
+        int h = 1;
+        for (int i = from; i < from + length; i++)
+            h = 31 * h + bytes[i];
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Checks that the id refers to an entry.
+     *
+     * @param id the entry id
+     */
+    private void checkId(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("No entry with id " + id);
+    }
+
+    /**
+     * Main class entry point. Stores every line of the text file provided by
+     * name in command line argument, training the encoding scheme on the first
+     * lines, and prints out the space used.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java HuffmanStringStore &lt;textFileName.txt&gt; &#91;sample-lines&#93;`
+     * <p>
+     * `java HuffmanStringStore Operations.txt 100`
+     *
+     * @param args contains the file name and optional number of sample lines
+     * @throws Exception if the file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        int sampleLines = args.length == 2 ? Integer.parseInt(args[1]) : 1000;
+        String[] lines = new String[16];
+        int count = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (count == lines.length)
+                    lines = Arrays.copyOf(lines, 2 * count);
+                lines[count++] = line;
+            }
+        }
+
+        HuffmanStringStore store = new HuffmanStringStore(Arrays.copyOf(lines, Math.min(count, sampleLines)));
+        long characters = 0;
+        for (int i = 0; i < count; i++) {
+            store.add(lines[i]);
+            characters += lines[i].length();
+        }
+
+        System.out.println(count + " strings");
+        System.out.println(characters + " bytes of characters");
+        System.out.println(store.arenaLength() + " bytes encoded");
+        for (int i = 0; i < count; i++) {
+            if (!store.get(i).equals(lines[i]) || store.find(lines[i]) > i || !store.contentEquals(i, lines[i])) {
+                System.out.println("Round trip failed at line " + (i + 1));
+                return;
+            }
+        }
+        System.out.println("Round trip succeeded");
+    }
+}
@@ -0,0 +1,314 @@
+/**
+ * A map from primitive `int` keys to values, implemented as a top-down splay
+ * tree like TopDownSplayTree.
+ * <p>
+ *
+ * Keys are never boxed: they are stored in the nodes as `int` and the
+ * remapping functions receive them as `int`. Every access splays the
+ * accessed key (or the last node reached looking for it) to the root, so
+ * lookups of recently or frequently used keys get cheaper.
+ *
+ * @param <V> the type of the values
+ * @see TopDownSplayTree
+ * @see LongSplayMap
+ * @see LongLongSplayMap
+ */
+public class IntSplayMap<V> {
+    /**
+     * A function computing a new value from a key and its current value.
+     *
+     * @param <V> the type of the values
+     */
+    public interface Remapping<V> {
+        /**
+         * Computes the new value of the key.
+         *
+         * @param key   the key
+         * @param value the current value (or null if absent)
+         * @return the new value (or null to remove the key)
+         */
+        V apply(int key, V value);
+    }
+
+    /**
+     * A binary tree node without parent reference.
+     *
+     * @param <V> the type of the values
+     */
+    private static final class Node<V> {
+        /**
+         * Key for the given node.
+         */
+        int key;
+
+        /**
+         * Value for the given node.
+         */
+        V value;
+
+        /**
+         * Left child node.
+         */
+        Node<V> left;
+
+        /**
+         * Right child node.
+         */
+        Node<V> right;
+
+        /**
+         * Constructs a new Node and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        Node(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Root node.
+     */
+    private Node<V> root;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Node reused as the header of the left and right trees during a splay.
+     */
+    private final Node<V> header = new Node<>(0, null);
+
+    /**
+     * Constructs a new empty IntSplayMap.
+     */
+    public IntSplayMap() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the value of the key, or null if the key is absent.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public V get(int key) {
+        if (root == null)
+            return null;
+        root = splay(key, root);
+        return root.key == key ? root.value : null;
+    }
+
+    /**
+     * Determines whether the map contains the key.
+     *
+     * @param key the key
+     * @return whether the key is present
+     */
+    public boolean containsKey(int key) {
+        if (root == null)
+            return false;
+        root = splay(key, root);
+        return root.key == key;
+    }
+
+    /**
+     * Associates the value with the key and returns the previous value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value (or null if absent)
+     */
+    public V put(int key, V value) {
+        if (root == null) {
+            root = new Node<>(key, value);
+            size++;
+            return null;
+        }
+
+        root = splay(key, root);
+        if (root.key == key) {
+            V previous = root.value;
+            root.value = value;
+            return previous;
+        }
+
+        link(new Node<>(key, value));
+        return null;
+    }
+
+    /**
+     * Removes the key and returns its value.
+     *
+     * @param key the key
+     * @return the removed value (or null if absent)
+     */
+    public V remove(int key) {
+        if (root == null)
+            return null;
+
+        root = splay(key, root);
+        if (root.key != key)
+            return null;
+
+        V value = root.value;
+        unlinkRoot();
+        return value;
+    }
+
+    /**
+     * Computes a new value for the key from its current value. The key is
+     * removed if the new value is null.
+     *
+     * @param key       the key
+     * @param remapping the function computing the new value
+     * @return the new value
+     */
+    public V compute(int key, Remapping<V> remapping) {
+        boolean present = false;
+        if (root != null) {
+            root = splay(key, root);
+            present = root.key == key;
+        }
+
+        V value = remapping.apply(key, present ? root.value : null);
+        if (present) {
+            if (value == null)
+                unlinkRoot();
+            else
+                root.value = value;
+        } else if (value != null) {
+            if (root == null) {
+                root = new Node<>(key, value);
+                size++;
+            } else {
+                link(new Node<>(key, value));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines whether the map has no entries.
+     *
+     * @return whether the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Makes the new node the root, splitting the current tree (already splayed
+     * for the new key, which is absent) around it.
+     *
+     * @param node the new node
+     */
+    private void link(Node<V> node) {
+        if (node.key < root.key) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        root = node;
+        size++;
+    }
+
+    /**
+     * Removes the root, joining its subtrees.
+     */
+    private void unlinkRoot() {
+        if (root.left == null) {
+            root = root.right;
+        } else {
+            // Every key of the left subtree is smaller, so splaying it for the
+            // removed key brings its maximum to its root.
+            Node<V> right = root.right;
+            root = splay(root.key, root.left);
+            root.right = right;
+        }
+        size--;
+    }
+
+    /**
+     * Splays the subtree for the given key and returns its new root: the node
+     * with that key if there is one, otherwise the last node reached while
+     * looking for it.
+     *
+     * @param key  the key
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private Node<V> splay(int key, Node<V> node) {
+        Node<V> left = header;
+        Node<V> right = header;
+        header.left = header.right = null;
+
+        while (true) {
+            if (key < node.key) {
+                if (node.left == null)
+                    break;
+                if (key < node.left.key) {
+                    Node<V> child = node.left;
+                    node.left = child.right;
+                    child.right = node;
+                    node = child;
+                    if (node.left == null)
+                        break;
+                }
+                right.left = node;
+                right = node;
+                node = node.left;
+            } else if (key > node.key) {
+                if (node.right == null)
+                    break;
+                if (key > node.right.key) {
+                    Node<V> child = node.right;
+                    node.right = child.left;
+                    child.left = node;
+                    node = child;
+                    if (node.right == null)
+                        break;
+                }
+                left.right = node;
+                left = node;
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+
+        left.right = node.left;
+        right.left = node.right;
+        node.left = header.right;
+        node.right = header.left;
+        header.left = header.right = null;
+        return node;
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * A map from primitive `long` keys to primitive `long` values, implemented as
+ * a top-down splay tree like TopDownSplayTree.
+ * <p>
+ *
+ * Neither keys nor values are ever boxed. Since a `long` cannot be null, an
+ * absent key is reported by returning the `missingValue` given at
+ * construction (0 by default); use `containsKey` to tell it apart from a
+ * stored value equal to it.
+ *
+ * @see TopDownSplayTree
+ * @see LongSplayMap
+ * @see IntSplayMap
+ */
+public class LongLongSplayMap {
+    /**
+     * A function computing a new value from a key and its current value.
+     */
+    public interface Remapping {
+        /**
+         * Computes the new value of the key.
+         *
+         * @param key     the key
+         * @param value   the current value (or the missing value if absent)
+         * @param present whether the key is present
+         * @return the new value
+         */
+        long apply(long key, long value, boolean present);
+    }
+
+    /**
+     * A binary tree node without parent reference.
+     */
+    private static final class Node {
+        /**
+         * Key for the given node.
+         */
+        long key;
+
+        /**
+         * Value for the given node.
+         */
+        long value;
+
+        /**
+         * Left child node.
+         */
+        Node left;
+
+        /**
+         * Right child node.
+         */
+        Node right;
+
+        /**
+         * Constructs a new Node and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        Node(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Root node.
+     */
+    private Node root;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Value returned for absent keys.
+     */
+    private final long missingValue;
+
+    /**
+     * Node reused as the header of the left and right trees during a splay.
+     */
+    private final Node header = new Node(0, 0);
+
+    /**
+     * Constructs a new empty LongLongSplayMap reporting absent keys with 0.
+     */
+    public LongLongSplayMap() {
+        this(0);
+    }
+
+    /**
+     * Constructs a new empty LongLongSplayMap reporting absent keys with the
+     * provided value.
+     *
+     * @param missingValue the value returned for absent keys
+     */
+    public LongLongSplayMap(long missingValue) {
+        this.missingValue = missingValue;
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the value of the key, or the missing value if the key is absent.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public long get(long key) {
+        if (root == null)
+            return missingValue;
+        root = splay(key, root);
+        return root.key == key ? root.value : missingValue;
+    }
+
+    /**
+     * Determines whether the map contains the key.
+     *
+     * @param key the key
+     * @return whether the key is present
+     */
+    public boolean containsKey(long key) {
+        if (root == null)
+            return false;
+        root = splay(key, root);
+        return root.key == key;
+    }
+
+    /**
+     * Associates the value with the key and returns the previous value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value (or the missing value if absent)
+     */
+    public long put(long key, long value) {
+        if (root == null) {
+            root = new Node(key, value);
+            size++;
+            return missingValue;
+        }
+
+        root = splay(key, root);
+        if (root.key == key) {
+            long previous = root.value;
+            root.value = value;
+            return previous;
+        }
+
+        link(new Node(key, value));
+        return missingValue;
+    }
+
+    /**
+     * Adds the delta to the value of the key (starting from the missing value
+     * if absent) and returns the new value.
+     *
+     * @param key   the key
+     * @param delta the amount to add
+     * @return the new value
+     */
+    public long addTo(long key, long delta) {
+        return compute(key, (k, value, present) -> value + delta);
+    }
+
+    /**
+     * Removes the key and returns its value.
+     *
+     * @param key the key
+     * @return the removed value (or the missing value if absent)
+     */
+    public long remove(long key) {
+        if (root == null)
+            return missingValue;
+
+        root = splay(key, root);
+        if (root.key != key)
+            return missingValue;
+
+        long value = root.value;
+        unlinkRoot();
+        return value;
+    }
+
+    /**
+     * Computes and stores a new value for the key from its current value.
+     *
+     * @param key       the key
+     * @param remapping the function computing the new value
+     * @return the new value
+     */
+    public long compute(long key, Remapping remapping) {
+        if (root == null) {
+            root = new Node(key, remapping.apply(key, missingValue, false));
+            size++;
+            return root.value;
+        }
+
+        root = splay(key, root);
+        if (root.key == key) {
+            root.value = remapping.apply(key, root.value, true);
+            return root.value;
+        }
+
+        long value = remapping.apply(key, missingValue, false);
+        link(new Node(key, value));
+        return value;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines whether the map has no entries.
+     *
+     * @return whether the map is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Makes the new node the root, splitting the current tree (already splayed
+     * for the new key, which is absent) around it.
+     *
+     * @param node the new node
+     */
+    private void link(Node node) {
+        if (node.key < root.key) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        root = node;
+        size++;
+    }
+
+    /**
+     * Removes the root, joining its subtrees.
+     */
+    private void unlinkRoot() {
+        if (root.left == null) {
+            root = root.right;
+        } else {
+            // Every key of the left subtree is smaller, so splaying it for the
+            // removed key brings its maximum to its root.
+            Node right = root.right;
+            root = splay(root.key, root.left);
+            root.right = right;
+        }
+        size--;
+    }
+
+    /**
+     * Splays the subtree for the given key and returns its new root: the node
+     * with that key if there is one, otherwise the last node reached while
+     * looking for it.
+     *
+     * @param key  the key
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private Node splay(long key, Node node) {
+        Node left = header;
+        Node right = header;
+        header.left = header.right = null;
+
+        while (true) {
+            if (key < node.key) {
+                if (node.left == null)
+                    break;
+                if (key < node.left.key) {
+                    Node child = node.left;
+                    node.left = child.right;
+                    child.right = node;
+                    node = child;
+                    if (node.left == null)
+                        break;
+                }
+                right.left = node;
+                right = node;
+                node = node.left;
+            } else if (key > node.key) {
+                if (node.right == null)
+                    break;
+                if (key > node.right.key) {
+                    Node child = node.right;
+                    node.right = child.left;
+                    child.left = node;
+                    node = child;
+                    if (node.right == null)
+                        break;
+                }
+                left.right = node;
+                left = node;
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+
+        left.right = node.left;
+        right.left = node.right;
+        node.left = header.right;
+        node.right = header.left;
+        header.left = header.right = null;
+        return node;
+    }
+}
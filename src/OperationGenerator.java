@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+/**
+ * A seeded, deterministic generator of synthetic operation logs.
+ * <p>
+ *
+ * Each operation is an insertion, a removal or a search, drawn according to the
+ * configured mix, on a key between 0 and `keys - 1` drawn from one of the
+ * distributions:
+ * <ul>
+ * <li>`uniform`: every key equally likely;</li>
+ * <li>`zipf`: Zipf distributed (exponent 1), the hot keys being scattered over
+ * the key range;</li>
+ * <li>`sequential`: keys in ascending order, wrapping around;</li>
+ * <li>`window`: uniform within a window of 1% of the keys that slides once
+ * over the key range during the log.</li>
+ * </ul>
+ * With probability `locality`, the key of an operation is instead one of the
+ * last `HISTORY_LENGTH` keys, which adds temporal locality to any distribution.
+ * <p>
+ *
+ * Operations are streamed to an OperationHandler, so logs of any length are
+ * written with constant memory, as text through OperationWriter or in the
+ * binary format through BinaryOperationLog. The same seed and parameters
+ * always produce the same log.
+ *
+ * @see OperationWriter
+ * @see BinaryOperationLog
+ * @see ZipfDistribution
+ */
+public class OperationGenerator {
+    /**
+     * Number of recent keys reused for temporal locality.
+     */
+    private static final int HISTORY_LENGTH = 64;
+
+    /**
+     * Seed of the random number generators.
+     */
+    private final long seed;
+
+    /**
+     * Number of distinct keys.
+     */
+    private final int keys;
+
+    /**
+     * Fraction of insertions.
+     */
+    private final double insertFraction;
+
+    /**
+     * Fraction of removals.
+     */
+    private final double removeFraction;
+
+    /**
+     * Name of the key distribution.
+     */
+    private final String distribution;
+
+    /**
+     * Probability of reusing a recent key.
+     */
+    private final double locality;
+
+    /**
+     * Constructs a new OperationGenerator and assigns the provided parameters to
+     * its attributes. Searches make up the operations that are neither
+     * insertions nor removals.
+     *
+     * @param seed           the seed of the random number generators
+     * @param keys           the number of distinct keys
+     * @param insertFraction the fraction of insertions
+     * @param removeFraction the fraction of removals
+     * @param distribution   the name of the key distribution
+     * @param locality       the probability of reusing a recent key
+     */
+    public OperationGenerator(long seed, int keys, double insertFraction, double removeFraction,
+            String distribution, double locality) {
+        if (keys < 1)
+            throw new IllegalArgumentException("Number of keys must be positive: " + keys);
+        if (insertFraction < 0 || removeFraction < 0 || insertFraction + removeFraction > 1)
+            throw new IllegalArgumentException("Invalid mix: " + insertFraction + ", " + removeFraction);
+        if (!distribution.equals("uniform") && !distribution.equals("zipf") && !distribution.equals("sequential")
+                && !distribution.equals("window"))
+            throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        if (locality < 0 || locality > 1)
+            throw new IllegalArgumentException("Locality out of range: " + locality);
+
+        this.seed = seed;
+        this.keys = keys;
+        this.insertFraction = insertFraction;
+        this.removeFraction = removeFraction;
+        this.distribution = distribution;
+        this.locality = locality;
+    }
+
+    /**
+     * Generates the operations and passes them to the handler.
+     *
+     * @param count   the number of operations
+     * @param handler the handler receiving the operations
+     */
+    public void generate(long count, OperationHandler handler) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ZipfDistribution zipf = distribution.equals("zipf") ? new ZipfDistribution(keys, 1, seed + 1) : null;
+        int window = Math.max(1, keys / 100);
+        int[] history = new int[HISTORY_LENGTH];
+        int filled = 0;
+        int next = 0;
+
+        for (long i = 0; i < count; i++) {
+            double draw = random.nextDouble();
+            char action = draw < insertFraction ? 'a' : draw < insertFraction + removeFraction ? 'r' : 'f';
+
+            int key;
+            if (filled > 0 && random.nextDouble() < locality) {
+                key = history[random.nextInt(filled)];
+            } else {
+                switch (distribution) {
+                case "zipf":
+                    key = ZipfDistribution.scatter(zipf.sample() - 1, keys);
+                    break;
+                case "sequential":
+                    key = (int) (i % keys);
+                    break;
+                case "window":
+                    long start = (long) ((double) i / count * keys);
+                    key = (int) ((start + random.nextInt(window)) % keys);
+                    break;
+                default:
+                    key = random.nextInt(keys);
+                    break;
+                }
+                history[next] = key;
+                next = (next + 1) % HISTORY_LENGTH;
+                if (filled < HISTORY_LENGTH)
+                    filled++;
+            }
+
+            handler.handle(action, key);
+        }
+    }
+
+    /**
+     * Generates the operations into a textual log file.
+     *
+     * @param count    the number of operations
+     * @param fileName the name of the log file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeText(long count, String fileName) throws IOException {
+        try (OperationWriter writer = new OperationWriter(fileName)) {
+            generate(count, writer);
+        }
+    }
+
+    /**
+     * Generates the operations into a binary log file.
+     *
+     * @param count    the number of operations
+     * @param fileName the name of the log file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(long count, String fileName) throws IOException {
+        try (BinaryOperationLog.Writer writer = new BinaryOperationLog.Writer(fileName)) {
+            generate(count, writer);
+        }
+    }
+
+    /**
+     * Main class entry point. Writes a synthetic operation log, in the binary
+     * format if the file name ends with `.bin` and as text otherwise.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java OperationGenerator &lt;output&gt; &lt;count&gt; &#91;keys&#93; &#91;insert,remove,find&#93; &#91;distribution&#93; &#91;locality&#93; &#91;seed&#93;`
+     * <p>
+     * `java OperationGenerator Operations4.txt 1000000000 1000000 40,20,40 zipf 0.1 1`
+     *
+     * @param args contains the file name, the number of operations, the number
+     *             of keys, the mix in percent, the distribution, the locality and
+     *             the seed
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        String fileName = args[0];
+        long count = Long.parseLong(args[1]);
+        int keys = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+        String[] mix = (args.length > 3 ? args[3] : "40,20,40").split(",");
+        String distribution = args.length > 4 ? args[4] : "uniform";
+        double locality = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+        long seed = args.length > 6 ? Long.parseLong(args[6]) : 1;
+
+        double insert = Double.parseDouble(mix[0]);
+        double remove = Double.parseDouble(mix[1]);
+        double total = insert + remove + Double.parseDouble(mix[2]);
+        OperationGenerator generator = new OperationGenerator(seed, keys, insert / total, remove / total,
+                distribution, locality);
+
+        long start = System.nanoTime();
+        if (fileName.endsWith(".bin"))
+            generator.writeBinary(count, fileName);
+        else
+            generator.writeText(count, fileName);
+
+        long elapsed = System.nanoTime() - start;
+        System.out.println(count + (count > 1 ? " operations" : " operation") + " written in " + elapsed / 1000000
+                + " ms");
+    }
+}
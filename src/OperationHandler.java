@@ -0,0 +1,13 @@
+/**
+ * A simple handler interface prototype the method needing to be overridden to
+ * receive the operations replayed from an operation log.
+ * <p>
+ *
+ * Each operation is made of an action character ('a' to add, 'r' to remove
+ * and 'f' to find) and the data value it applies to.
+ *
+ * @see OperationReader
+ */
+public interface OperationHandler {
+    public void handle(char action, int data);
+}
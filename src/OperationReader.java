@@ -0,0 +1,179 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader of textual operation logs, such as `Operations.txt`.
+ * <p>
+ *
+ * Every line holds an action character followed by a decimal data value (for
+ * example `a280`, `r607` or `f745`). The log is read through a fixed-size byte
+ * buffer and each record is parsed straight from the bytes and passed to an
+ * OperationHandler, so no String is created per line and memory use does not
+ * depend on the size of the log.
+ * <p>
+ *
+ * Both `\n` and `\r\n` line endings are accepted and empty lines are skipped.
+ * Lines starting with an unknown action are passed on with a data value of 0
+ * and the rest of the line ignored.
+ * <p>
+ *
+ * Replaying by file name also accepts logs in the binary format, which are
+ * recognized by their header and replayed by BinaryOperationLog.
+ *
+ * @see OperationHandler
+ * @see BinaryOperationLog
+ */
+public class OperationReader {
+    /**
+     * Number of bytes read from the log at a time.
+     */
+    private static final int BUFFER_LENGTH = 1 << 16;
+
+    /**
+     * The stream the log is read from.
+     */
+    private final InputStream in;
+
+    /**
+     * The buffer of bytes read from the stream.
+     */
+    private final byte[] buffer = new byte[BUFFER_LENGTH];
+
+    /**
+     * Position of the next byte to parse in the buffer.
+     */
+    private int position = 0;
+
+    /**
+     * Number of valid bytes in the buffer.
+     */
+    private int limit = 0;
+
+    /**
+     * Number of the line being parsed (1-based), for error messages.
+     */
+    private long line = 1;
+
+    /**
+     * Constructs a new OperationReader reading from the provided stream.
+     *
+     * @param in the stream
+     */
+    public OperationReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Replays every operation of the log file with the provided name, in either
+     * the textual or the binary format.
+     *
+     * @param fileName the name of the log file
+     * @param handler  the handler receiving the operations
+     * @return the number of operations replayed
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(String fileName, OperationHandler handler) throws IOException {
+        if (BinaryOperationLog.isBinary(fileName))
+            return BinaryOperationLog.replay(fileName, handler);
+
+        try (InputStream in = new FileInputStream(fileName)) {
+            return new OperationReader(in).replay(handler);
+        }
+    }
+
+    /**
+     * Replays every remaining operation of the stream.
+     *
+     * @param handler the handler receiving the operations
+     * @return the number of operations replayed
+     * @throws IOException if the stream cannot be read
+     */
+    public long replay(OperationHandler handler) throws IOException {
+        long count = 0;
+        int b;
+
+        while ((b = next()) != -1) {
+            if (b == '\n') {
+                line++;
+                continue;
+            }
+            if (b == '\r')
+                continue;
+
+            char action = (char) b;
+            if (action == 'a' || action == 'r' || action == 'f') {
+                handler.handle(action, parseData());
+            } else {
+                skipLine();
+                handler.handle(action, 0);
+            }
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Parses the data value following the action, up to the end of the line.
+     *
+     * @return the data value
+     * @throws IOException if the stream cannot be read
+     */
+    private int parseData() throws IOException {
+        int b = next();
+        boolean negative = b == '-';
+        if (negative)
+            b = next();
+
+        long value = 0;
+        int digits = 0;
+        while (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+                throw new IllegalArgumentException("Data value out of range on line " + line);
+            digits++;
+            b = next();
+        }
+
+        if (b == '\r')
+            b = next();
+        if (digits == 0 || (b != '\n' && b != -1))
+            throw new IllegalArgumentException("Malformed operation on line " + line);
+        if (b == '\n')
+            line++;
+
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Skips the bytes up to and including the end of the line.
+     *
+     * @throws IOException if the stream cannot be read
+     */
+    private void skipLine() throws IOException {
+        int b;
+        while ((b = next()) != -1 && b != '\n')
+            ;
+        if (b == '\n')
+            line++;
+    }
+
+    /**
+     * Returns the next byte of the stream, refilling the buffer as needed.
+     *
+     * @return the byte (or -1 at the end of the stream)
+     * @throws IOException if the stream cannot be read
+     */
+    private int next() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * An OperationHandler writing the operations it receives as a textual
+ * operation log, one `a`, `r` or `f` line per operation, which OperationReader
+ * reads back.
+ * <p>
+ *
+ * Lines are formatted straight into a byte buffer, without creating a String
+ * per operation, and the buffer is written whenever it fills up.
+ *
+ * @see OperationReader
+ * @see OperationHandler
+ */
+public class OperationWriter implements OperationHandler, Closeable {
+    /**
+     * Number of bytes buffered before writing.
+     */
+    private static final int BUFFER_LENGTH = 1 << 16;
+
+    /**
+     * Largest number of bytes of a line: action, sign, 10 digits and newline.
+     */
+    private static final int MAX_LINE_LENGTH = 13;
+
+    /**
+     * The stream the log is written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * The buffer of bytes not written yet.
+     */
+    private final byte[] buffer = new byte[BUFFER_LENGTH];
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int length = 0;
+
+    /**
+     * Constructs a new OperationWriter creating (or truncating) the log file with
+     * the provided name.
+     *
+     * @param fileName the name of the log file
+     * @throws IOException if the file cannot be written
+     */
+    public OperationWriter(String fileName) throws IOException {
+        this(new FileOutputStream(fileName));
+    }
+
+    /**
+     * Constructs a new OperationWriter writing to the provided stream.
+     *
+     * @param out the stream
+     */
+    public OperationWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the operation.
+     *
+     * @param action the action character
+     * @param data   the data value
+     */
+    @Override
+    public void handle(char action, int data) {
+        try {
+            write(action, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the operation.
+     *
+     * @param action the action character
+     * @param data   the data value
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(char action, int data) throws IOException {
+        if (length + MAX_LINE_LENGTH > buffer.length)
+            flush();
+
+        buffer[length++] = (byte) action;
+        long value = data;
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+
+        // Write the digits backwards from the end of the line.
+        int end = length + digitCount(value);
+        for (int i = end - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+        buffer[length++] = '\n';
+    }
+
+    /**
+     * Writes the buffered bytes to the stream.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+
+    /**
+     * Flushes and closes the log.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /**
+     * Returns the number of decimal digits of the value.
+     *
+     * @param value the value, not negative
+     * @return the number of digits
+     */
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,348 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Micro-benchmarks of SplayTree against java.util.TreeMap and java.util.HashMap
+ * under several access patterns, and on recorded operation logs.
+ * <p>
+ *
+ * For every size, pattern and structure, the keys are first inserted, then
+ * searched for following the pattern, then removed, and each phase is timed
+ * separately. The keys to access are generated beforehand so that only the
+ * structures are measured, and every run is repeated, the first runs serving as
+ * warm-up for the JIT compiler and the best of the others being reported. The
+ * patterns are:
+ * <ul>
+ * <li>`sequential`: keys accessed in ascending order;</li>
+ * <li>`uniform`: keys drawn uniformly;</li>
+ * <li>`zipf`: keys drawn from a Zipf distribution (exponent 1), the hot keys
+ * being scattered over the key range;</li>
+ * <li>`shift`: keys drawn uniformly from a working set of 1% of the keys that
+ * moves to other keys every tenth of the run.</li>
+ * </ul>
+ * <p>
+ *
+ * Results are printed in nanoseconds per operation. The largest sizes need a
+ * heap large enough for the structures (SplayTree nodes take about 40 bytes).
+ *
+ * @see SplayTree
+ * @see ZipfDistribution
+ */
+public class SplayBenchmark {
+    /**
+     * Names of the access patterns.
+     */
+    private static final String[] PATTERNS = { "sequential", "uniform", "zipf", "shift" };
+
+    /**
+     * Names of the benchmarked structures.
+     */
+    private static final String[] STRUCTURES = { "SplayTree", "TreeMap", "HashMap" };
+
+    /**
+     * Number of runs discarded as warm-up.
+     */
+    private static final int WARMUP_RUNS = 2;
+
+    /**
+     * Number of measured runs.
+     */
+    private static final int MEASURED_RUNS = 3;
+
+    /**
+     * Seed of the generated keys.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Sink of the search results, so that the JIT compiler cannot discard them.
+     */
+    private static volatile long sink;
+
+    /**
+     * The operations of a benchmarked structure.
+     */
+    private interface Structure {
+        public void insert(int key);
+
+        public boolean search(int key);
+
+        public void remove(int key);
+    }
+
+    /**
+     * Returns a new, empty instance of the named structure.
+     *
+     * @param name the name of the structure
+     * @return the structure
+     */
+    private static Structure newStructure(String name) {
+        switch (name) {
+        case "SplayTree": {
+            SplayTree tree = new SplayTree();
+            return new Structure() {
+                @Override
+                public void insert(int key) {
+                    tree.insert(key);
+                }
+
+                @Override
+                public boolean search(int key) {
+                    return tree.search(key);
+                }
+
+                @Override
+                public void remove(int key) {
+                    tree.remove(key);
+                }
+            };
+        }
+        case "TreeMap": {
+            TreeMap<Integer, Boolean> map = new TreeMap<>();
+            return new Structure() {
+                @Override
+                public void insert(int key) {
+                    map.put(key, Boolean.TRUE);
+                }
+
+                @Override
+                public boolean search(int key) {
+                    return map.containsKey(key);
+                }
+
+                @Override
+                public void remove(int key) {
+                    map.remove(key);
+                }
+            };
+        }
+        default: {
+            java.util.HashMap<Integer, Boolean> map = new java.util.HashMap<>();
+            return new Structure() {
+                @Override
+                public void insert(int key) {
+                    map.put(key, Boolean.TRUE);
+                }
+
+                @Override
+                public boolean search(int key) {
+                    return map.containsKey(key);
+                }
+
+                @Override
+                public void remove(int key) {
+                    map.remove(key);
+                }
+            };
+        }
+        }
+    }
+
+    /**
+     * Returns the keys to access following the pattern, among the keys 0 to
+     * `size - 1`.
+     *
+     * @param pattern the name of the pattern
+     * @param size    the number of keys
+     * @param count   the number of accesses
+     * @return the keys
+     */
+    private static int[] accesses(String pattern, int size, int count) {
+        int[] keys = new int[count];
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        switch (pattern) {
+        case "sequential":
+            for (int i = 0; i < count; i++)
+                keys[i] = i % size;
+            break;
+        case "uniform":
+            for (int i = 0; i < count; i++)
+                keys[i] = random.nextInt(size);
+            break;
+        case "zipf":
+            ZipfDistribution zipf = new ZipfDistribution(size, 1, SEED);
+            for (int i = 0; i < count; i++)
+                keys[i] = ZipfDistribution.scatter(zipf.sample() - 1, size);
+            break;
+        case "shift":
+            int window = Math.max(1, size / 100);
+            int phase = Math.max(1, count / 10);
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                if (i % phase == 0)
+                    start = random.nextInt(size);
+                keys[i] = (start + random.nextInt(window)) % size;
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown pattern: " + pattern);
+        }
+
+        return keys;
+    }
+
+    /**
+     * Benchmarks every structure on every pattern at the given size and prints
+     * one line per pattern and structure.
+     *
+     * @param size  the number of keys
+     * @param count the number of searches
+     */
+    private static void benchmark(int size, int count) {
+        for (String pattern : PATTERNS) {
+            int[] order = insertionOrder(pattern, size);
+            int[] keys = accesses(pattern, size, count);
+
+            for (String name : STRUCTURES) {
+                long[] best = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+
+                for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                    Structure structure = newStructure(name);
+                    long found = 0;
+
+                    long start = System.nanoTime();
+                    for (int key : order)
+                        structure.insert(key);
+                    long inserted = System.nanoTime();
+                    for (int key : keys)
+                        if (structure.search(key))
+                            found++;
+                    long searched = System.nanoTime();
+                    for (int key : order)
+                        structure.remove(key);
+                    long removed = System.nanoTime();
+                    sink += found;
+
+                    if (run >= WARMUP_RUNS) {
+                        best[0] = Math.min(best[0], inserted - start);
+                        best[1] = Math.min(best[1], searched - inserted);
+                        best[2] = Math.min(best[2], removed - searched);
+                    }
+                }
+
+                System.out.printf("%,12d %-10s %-9s insert %8.1f  search %8.1f  remove %8.1f ns/op%n", size,
+                        pattern, name, (double) best[0] / size, (double) best[1] / count,
+                        (double) best[2] / size);
+            }
+        }
+    }
+
+    /**
+     * Returns the order in which the keys 0 to `size - 1` are inserted and
+     * removed: ascending for the sequential pattern, shuffled otherwise.
+     *
+     * @param pattern the name of the pattern
+     * @param size    the number of keys
+     * @return the keys
+     */
+    private static int[] insertionOrder(String pattern, int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        if (!pattern.equals("sequential")) {
+            SplittableRandom random = new SplittableRandom(SEED + 1);
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int key = order[i];
+                order[i] = order[j];
+                order[j] = key;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Replays the operation log with the provided name on every structure,
+     * repeating it until each run lasts at least a tenth of a second, and prints
+     * one line per structure.
+     *
+     * @param fileName the name of the operation log
+     * @throws Exception if the log cannot be read
+     */
+    private static void replay(String fileName) throws Exception {
+        char[][] actions = { new char[1024] };
+        int[][] values = { new int[1024] };
+        int length = (int) OperationReader.replay(fileName, new OperationHandler() {
+            private int next = 0;
+
+            @Override
+            public void handle(char action, int data) {
+                if (next == actions[0].length) {
+                    actions[0] = Arrays.copyOf(actions[0], next * 2);
+                    values[0] = Arrays.copyOf(values[0], next * 2);
+                }
+                actions[0][next] = action;
+                values[0][next++] = data;
+            }
+        });
+
+        for (String name : STRUCTURES) {
+            double best = Double.MAX_VALUE;
+
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                long start = System.nanoTime();
+                long count = 0;
+                long found = 0;
+
+                do {
+                    Structure structure = newStructure(name);
+                    for (int i = 0; i < length; i++) {
+                        switch (actions[0][i]) {
+                        case 'a':
+                            structure.insert(values[0][i]);
+                            break;
+                        case 'r':
+                            structure.remove(values[0][i]);
+                            break;
+                        case 'f':
+                            if (structure.search(values[0][i]))
+                                found++;
+                            break;
+                        }
+                    }
+                    count += length;
+                } while (System.nanoTime() - start < 100000000L);
+
+                sink += found;
+                if (run >= WARMUP_RUNS)
+                    best = Math.min(best, (double) (System.nanoTime() - start) / count);
+            }
+
+            System.out.printf("%-20s %-9s %8.1f ns/op%n", fileName, name, best);
+        }
+    }
+
+    /**
+     * Main class entry point. Benchmarks the structures on generated access
+     * patterns at the provided sizes, or on the provided operation logs.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayBenchmark patterns &lt;sizes&gt; &#91;searches&#93;`
+     * <p>
+     * `java SplayBenchmark patterns 1000,1000000 1000000`
+     * <p>
+     * `java SplayBenchmark traces Operations.txt Operations1.txt`
+     *
+     * @param args contains the mode and either the comma-separated sizes and
+     *             the number of searches, or the names of the operation logs
+     * @throws Exception if a log cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        if (args[0].equals("patterns")) {
+            String[] sizes = (args.length > 1 ? args[1] : "1000,10000,100000,1000000").split(",");
+            int count = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+            for (String size : sizes)
+                benchmark(Integer.parseInt(size.trim()), count);
+        } else if (args[0].equals("traces")) {
+            for (int i = 1; i < args.length; i++)
+                replay(args[i]);
+        } else {
+            throw new IllegalArgumentException("Unknown mode: " + args[0]);
+        }
+    }
+}
@@ -0,0 +1,633 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A bounded key/value cache implemented as a top-down splay tree like
+ * IntSplayMap, evicting cold entries when it outgrows its capacity.
+ * <p>
+ *
+ * Every lookup or insertion splays its key to the root, so recently used
+ * entries stay near the top and cold ones sink towards the leaves. Every node
+ * remembers the logical time of its last use and the oldest such time in its
+ * subtree, refreshed along the splayed path. When the cache is over its
+ * capacity, the entry used least recently is found by descending from the
+ * root towards the subtree holding it, then splayed to the root and removed,
+ * so that like every other operation an eviction takes amortized logarithmic
+ * time. Eviction order is thus the one of LRU, without the list that LRU
+ * needs.
+ * <p>
+ *
+ * The capacity is a number of entries, or a budget of weights when a weigher
+ * is provided, for instance an estimate of the memory taken by each entry.
+ * Hits, misses and evictions are counted.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @see IntSplayMap
+ * @see SplayTree
+ */
+public class SplayCache<K extends Comparable<K>, V> {
+    /**
+     * A binary tree node without parent reference.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    private static final class Node<K, V> {
+        /**
+         * Key for the given node.
+         */
+        K key;
+
+        /**
+         * Value for the given node.
+         */
+        V value;
+
+        /**
+         * Weight of the entry.
+         */
+        long weight;
+
+        /**
+         * Logical time of the last lookup or insertion of the entry.
+         */
+        long lastAccess;
+
+        /**
+         * Smallest last access time in the subtree rooted at this node.
+         */
+        long oldest;
+
+        /**
+         * Left child node.
+         */
+        Node<K, V> left;
+
+        /**
+         * Right child node.
+         */
+        Node<K, V> right;
+
+        /**
+         * Constructs a new Node and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Root node.
+     */
+    private Node<K, V> root;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Sum of the weights of the entries.
+     */
+    private long weight;
+
+    /**
+     * Largest sum of weights kept.
+     */
+    private final long capacity;
+
+    /**
+     * Function weighing an entry (or null if every entry weighs 1).
+     */
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+
+    /**
+     * Logical time, advanced by every lookup and insertion.
+     */
+    private long clock;
+
+    /**
+     * Number of lookups that found their key.
+     */
+    private long hitCount;
+
+    /**
+     * Number of lookups that did not find their key.
+     */
+    private long missCount;
+
+    /**
+     * Number of entries evicted.
+     */
+    private long evictionCount;
+
+    /**
+     * Node reused as the header of the left and right trees during a splay.
+     */
+    private final Node<K, V> header = new Node<>(null, null);
+
+    /**
+     * Nodes whose children changed during a splay, in top-down order.
+     */
+    private Node<K, V>[] path = newPath(64);
+
+    /**
+     * Number of nodes in `path`.
+     */
+    private int pathLength;
+
+    /**
+     * Constructs a new empty SplayCache keeping at most `capacity` entries.
+     *
+     * @param capacity the largest number of entries
+     */
+    public SplayCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructs a new empty SplayCache keeping entries while the sum of their
+     * weights is at most `capacity`.
+     *
+     * @param capacity the largest sum of weights
+     * @param weigher  the function weighing an entry, not negative (or null if
+     *                 every entry weighs 1)
+     */
+    public SplayCache(long capacity, ToLongBiFunction<? super K, ? super V> weigher) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.weigher = weigher;
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the value of the key, or null if the key is absent, counting a
+     * hit or a miss.
+     *
+     * @param key the key
+     * @return the value
+     */
+    public V get(K key) {
+        if (root != null) {
+            root = splay(key, root);
+            if (root.key.compareTo(key) == 0) {
+                root.lastAccess = ++clock;
+                updateOldest(root);
+                hitCount++;
+                return root.value;
+            }
+        }
+
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Determines whether the cache contains the key, without counting a hit or
+     * a miss nor refreshing the entry.
+     *
+     * @param key the key
+     * @return whether the key is present
+     */
+    public boolean containsKey(K key) {
+        if (root == null)
+            return false;
+        root = splay(key, root);
+        return root.key.compareTo(key) == 0;
+    }
+
+    /**
+     * Associates the value with the key, then evicts entries until the cache is
+     * within its capacity, and returns the previous value. An entry heavier than
+     * the whole capacity is not kept: it only removes the previous entry of the
+     * key, counted as an eviction, and leaves the other entries in place.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value (or null if absent)
+     */
+    public V put(K key, V value) {
+        long entryWeight = weigher == null ? 1 : weigher.applyAsLong(key, value);
+        if (entryWeight < 0)
+            throw new IllegalArgumentException("Negative weight: " + entryWeight);
+
+        V previous = null;
+        if (entryWeight > capacity) {
+            if (root != null) {
+                root = splay(key, root);
+                if (root.key.compareTo(key) == 0) {
+                    previous = root.value;
+                    unlinkRoot();
+                }
+            }
+            evictionCount++;
+            return previous;
+        }
+
+        if (root == null) {
+            root = new Node<>(key, value);
+            size++;
+        } else {
+            root = splay(key, root);
+            int cmp = key.compareTo(root.key);
+            if (cmp == 0) {
+                previous = root.value;
+                root.value = value;
+                weight -= root.weight;
+            } else {
+                link(new Node<>(key, value), cmp);
+            }
+        }
+
+        root.weight = entryWeight;
+        root.lastAccess = ++clock;
+        updateOldest(root);
+        weight += entryWeight;
+
+        // The new entry, used last and within the capacity, is never evicted.
+        while (weight > capacity)
+            evict();
+        return previous;
+    }
+
+    /**
+     * Removes the key and returns its value.
+     *
+     * @param key the key
+     * @return the removed value (or null if absent)
+     */
+    public V remove(K key) {
+        if (root == null)
+            return null;
+
+        root = splay(key, root);
+        if (root.key.compareTo(key) != 0)
+            return null;
+
+        V value = root.value;
+        unlinkRoot();
+        return value;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sum of the weights of the entries.
+     *
+     * @return the weight
+     */
+    public long weight() {
+        return weight;
+    }
+
+    /**
+     * Returns the largest sum of weights kept.
+     *
+     * @return the capacity
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of lookups that found their key.
+     *
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of lookups that did not find their key.
+     *
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of entries evicted.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the fraction of lookups that found their key.
+     *
+     * @return the hit rate (0 if there was no lookup)
+     */
+    public double hitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * Removes every entry. The counters are kept.
+     */
+    public void clear() {
+        root = null;
+        size = 0;
+        weight = 0;
+    }
+
+    /**
+     * Evicts the entry used least recently, found by following the subtrees
+     * holding the oldest last access time, then splayed to the root and removed.
+     * The splay pays for the descent, which a sequential scan would otherwise
+     * make as long as the cache on every eviction.
+     */
+    private void evict() {
+        Node<K, V> node = root;
+        while (node.lastAccess != node.oldest) {
+            if (node.left != null && node.left.oldest == node.oldest)
+                node = node.left;
+            else
+                node = node.right;
+        }
+
+        evictionCount++;
+        root = splay(node.key, root);
+        unlinkRoot();
+    }
+
+    /**
+     * Makes the new node the root, splitting the current tree (already splayed
+     * for the new key, which is absent) around it.
+     *
+     * @param node the new node
+     * @param cmp  the comparison of the new key with the root key
+     */
+    private void link(Node<K, V> node, int cmp) {
+        if (cmp < 0) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        updateOldest(root);
+        root = node;
+        size++;
+    }
+
+    /**
+     * Removes the root, joining its subtrees.
+     */
+    private void unlinkRoot() {
+        weight -= root.weight;
+        if (root.left == null) {
+            root = root.right;
+        } else {
+            // Every key of the left subtree is smaller, so splaying it for the
+            // removed key brings its maximum to its root.
+            Node<K, V> right = root.right;
+            root = splay(root.key, root.left);
+            root.right = right;
+            updateOldest(root);
+        }
+        size--;
+    }
+
+    /**
+     * Splays the subtree for the given key and returns its new root: the node
+     * with that key if there is one, otherwise the last node reached while
+     * looking for it.
+     *
+     * @param key  the key
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private Node<K, V> splay(K key, Node<K, V> node) {
+        Node<K, V> left = header;
+        Node<K, V> right = header;
+        header.left = header.right = null;
+        pathLength = 0;
+
+        while (true) {
+            int cmp = key.compareTo(node.key);
+            if (cmp < 0) {
+                if (node.left == null)
+                    break;
+                Node<K, V> rotated = null;
+                if (key.compareTo(node.left.key) < 0) {
+                    Node<K, V> child = node.left;
+                    node.left = child.right;
+                    child.right = node;
+                    rotated = node;
+                    node = child;
+                    if (node.left == null) {
+                        push(rotated);
+                        break;
+                    }
+                }
+                right.left = node;
+                right = node;
+                push(node);
+                if (rotated != null)
+                    push(rotated);
+                node = node.left;
+            } else if (cmp > 0) {
+                if (node.right == null)
+                    break;
+                Node<K, V> rotated = null;
+                if (key.compareTo(node.right.key) > 0) {
+                    Node<K, V> child = node.right;
+                    node.right = child.left;
+                    child.left = node;
+                    rotated = node;
+                    node = child;
+                    if (node.right == null) {
+                        push(rotated);
+                        break;
+                    }
+                }
+                left.right = node;
+                left = node;
+                push(node);
+                if (rotated != null)
+                    push(rotated);
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+
+        left.right = node.left;
+        right.left = node.right;
+        node.left = header.right;
+        node.right = header.left;
+        header.left = header.right = null;
+
+        // A node pushed after another is below it, or in a separate subtree.
+        for (int i = pathLength - 1; i >= 0; i--)
+            updateOldest(path[i]);
+        updateOldest(node);
+        return node;
+    }
+
+    /**
+     * Allocates an array for `path`.
+     *
+     * @param <K>    the type of the keys
+     * @param <V>    the type of the values
+     * @param length the length of the array
+     * @return the array
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> Node<K, V>[] newPath(int length) {
+        return (Node<K, V>[]) new Node<?, ?>[length];
+    }
+
+    /**
+     * Appends the node to `path`, growing it if needed.
+     *
+     * @param node the node
+     */
+    private void push(Node<K, V> node) {
+        if (pathLength == path.length)
+            path = Arrays.copyOf(path, pathLength * 2);
+        path[pathLength++] = node;
+    }
+
+    /**
+     * Recomputes the oldest last access time in the subtree rooted at the node
+     * from its own and those of its children.
+     *
+     * @param node the node
+     */
+    private static <K, V> void updateOldest(Node<K, V> node) {
+        long oldest = node.lastAccess;
+        if (node.left != null && node.left.oldest < oldest)
+            oldest = node.left.oldest;
+        if (node.right != null && node.right.oldest < oldest)
+            oldest = node.right.oldest;
+        node.oldest = oldest;
+    }
+
+    /**
+     * A source of operations replayed on both caches by `main`.
+     */
+    private interface Workload {
+        /**
+         * Replays the operations of the workload.
+         *
+         * @param handler the handler receiving the operations
+         * @throws IOException if the operations cannot be read
+         */
+        void replay(OperationHandler handler) throws IOException;
+    }
+
+    /**
+     * Number of keys of the sequential scan of `main`.
+     */
+    private static final int SCAN_LENGTH = 200000;
+
+    /**
+     * Main class entry point. Replays the keys of the operation log provided by
+     * name in command line argument as lookups, loading every missed key, into
+     * a SplayCache and into an LRU cache of the same capacity (a
+     * java.util.LinkedHashMap in access order), then prints out the hits,
+     * misses, evictions and time of both. Removals remove the key from both
+     * caches. Both caches then go through a sequential scan of `SCAN_LENGTH`
+     * ascending keys, where every lookup misses and every insertion evicts.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayCache &lt;textFileName.txt&gt; &#91;capacity&#93;`
+     * <p>
+     * `java SplayCache Operations4.txt 10000`
+     *
+     * @param args contains the file name and the capacity
+     * @throws IOException if the log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        String fileName = args[0];
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        System.out.printf("%-10s %12s %12s %12s %9s %10s%n", "cache", "hits", "misses", "evictions", "hit rate",
+                "time");
+        System.out.println(fileName + ":");
+        compare(capacity, handler -> OperationReader.replay(fileName, handler));
+        System.out.printf("sequential scan of %,d keys:%n", SCAN_LENGTH);
+        compare(capacity, handler -> {
+            for (int i = 0; i < SCAN_LENGTH; i++)
+                handler.handle('f', i);
+        });
+    }
+
+    /**
+     * Replays the workload on a SplayCache and on an LRU cache of the same
+     * capacity, then prints out the hits, misses, evictions and time of both.
+     *
+     * @param capacity the capacity of both caches
+     * @param workload the workload
+     * @throws IOException if the operations cannot be read
+     */
+    private static void compare(int capacity, Workload workload) throws IOException {
+        SplayCache<Integer, Integer> cache = new SplayCache<>(capacity);
+        long start = System.nanoTime();
+        workload.replay((action, data) -> {
+            if (action == 'r')
+                cache.remove(data);
+            else if (cache.get(data) == null)
+                cache.put(data, data);
+        });
+        long splayElapsed = System.nanoTime() - start;
+
+        long[] lru = new long[3];
+        Map<Integer, Integer> map = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                if (size() <= capacity)
+                    return false;
+                lru[2]++;
+                return true;
+            }
+        };
+        start = System.nanoTime();
+        workload.replay((action, data) -> {
+            if (action == 'r') {
+                map.remove(data);
+            } else if (map.get(data) != null) {
+                lru[0]++;
+            } else {
+                lru[1]++;
+                map.put(data, data);
+            }
+        });
+        long lruElapsed = System.nanoTime() - start;
+
+        System.out.printf("%-10s %,12d %,12d %,12d %8.2f%% %7d ms%n", "SplayCache", cache.getHitCount(),
+                cache.getMissCount(), cache.getEvictionCount(), cache.hitRate() * 100, splayElapsed / 1000000);
+        System.out.printf("%-10s %,12d %,12d %,12d %8.2f%% %7d ms%n", "LRU", lru[0], lru[1], lru[2],
+                lru[0] + lru[1] == 0 ? 0 : 100.0 * lru[0] / (lru[0] + lru[1]), lruElapsed / 1000000);
+    }
+}
@@ -0,0 +1,433 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Live metrics of a SplayTree: operation counts, splay rotations, access depths
+ * and operation latencies.
+ * <p>
+ *
+ * All counters are LongAdders, which stripe contended updates over several
+ * cells, so the metrics can be shared by trees used from different threads and
+ * read at any time without stopping them. Access depths are counted per depth
+ * up to `MAX_DEPTH` (deeper accesses share the last bucket), and latencies in
+ * buckets of powers of two nanoseconds, from which percentiles are estimated.
+ * <p>
+ *
+ * A tree without metrics (the default) only pays a null check per operation.
+ * A copy of the counters is taken with `snapshot`, and `register`
+ * exposes them through JMX.
+ *
+ * @see SplayTree
+ * @see SplayMetricsMBean
+ */
+public class SplayMetrics implements SplayMetricsMBean {
+    /**
+     * Largest depth counted on its own in the depth histogram.
+     */
+    public static final int MAX_DEPTH = 63;
+
+    /**
+     * Number of buckets of the latency histogram.
+     */
+    private static final int LATENCY_BUCKETS = 64;
+
+    /**
+     * An immutable copy of the metrics at a point in time.
+     */
+    public static class Snapshot {
+        /**
+         * Number of insertions.
+         */
+        public final long insertCount;
+
+        /**
+         * Number of removals.
+         */
+        public final long removeCount;
+
+        /**
+         * Number of searches.
+         */
+        public final long searchCount;
+
+        /**
+         * Number of zigzig operations.
+         */
+        public final long zigzigCount;
+
+        /**
+         * Number of zigzag operations.
+         */
+        public final long zigzagCount;
+
+        /**
+         * Number of accessed nodes by depth (the last bucket counting all deeper
+         * ones).
+         */
+        private final long[] depths;
+
+        /**
+         * Number of operations by latency bucket (bucket `i` counting latencies
+         * below 2^i nanoseconds, and not counted by the previous bucket).
+         */
+        private final long[] latencies;
+
+        /**
+         * Constructs a new Snapshot and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param insertCount the number of insertions
+         * @param removeCount the number of removals
+         * @param searchCount the number of searches
+         * @param zigzigCount the number of zig-zigs
+         * @param zigzagCount the number of zig-zags
+         * @param depths      the depth histogram
+         * @param latencies   the latency histogram
+         */
+        private Snapshot(long insertCount, long removeCount, long searchCount, long zigzigCount, long zigzagCount,
+                long[] depths, long[] latencies) {
+            this.insertCount = insertCount;
+            this.removeCount = removeCount;
+            this.searchCount = searchCount;
+            this.zigzigCount = zigzigCount;
+            this.zigzagCount = zigzagCount;
+            this.depths = depths;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Returns the total number of operations.
+         *
+         * @return the number of operations
+         */
+        public long operationCount() {
+            return insertCount + removeCount + searchCount;
+        }
+
+        /**
+         * Returns the number of accessed nodes at the given depth (or deeper, for
+         * `MAX_DEPTH`).
+         *
+         * @param depth the depth
+         * @return the number of accesses
+         */
+        public long accessCount(int depth) {
+            return depths[Math.min(depth, MAX_DEPTH)];
+        }
+
+        /**
+         * Returns the mean depth of the accessed nodes, counting those deeper
+         * than `MAX_DEPTH` as `MAX_DEPTH`.
+         *
+         * @return the mean depth (or 0 if none)
+         */
+        public double meanAccessDepth() {
+            long count = 0;
+            long sum = 0;
+            for (int depth = 0; depth < depths.length; depth++) {
+                count += depths[depth];
+                sum += depth * depths[depth];
+            }
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns an upper bound of the latency below which the given fraction of
+         * the operations completed, in nanoseconds.
+         *
+         * @param fraction the fraction of operations, between 0 and 1
+         * @return the latency percentile (or 0 if no operation was timed)
+         */
+        public long latencyPercentile(double fraction) {
+            long total = 0;
+            for (long count : latencies)
+                total += count;
+            if (total == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int bucket = 0; bucket < latencies.length; bucket++) {
+                seen += latencies[bucket];
+                if (seen >= Math.max(rank, 1))
+                    return bucket == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Overrides the `toString` method.
+         *
+         * @return the string representation
+         */
+        @Override
+        public String toString() {
+            return operationCount() + " operations (" + insertCount + " inserts, " + removeCount + " removes, "
+                    + searchCount + " searches), " + zigzigCount + " Zig-Zigs, " + zigzagCount + " Zig-Zags, "
+                    + String.format("mean depth %.2f, ", meanAccessDepth()) + "latency p50 < "
+                    + latencyPercentile(0.5) + " ns, p99 < " + latencyPercentile(0.99) + " ns, p99.9 < "
+                    + latencyPercentile(0.999) + " ns";
+        }
+    }
+
+    /**
+     * Number of insertions.
+     */
+    private final LongAdder inserts = new LongAdder();
+
+    /**
+     * Number of removals.
+     */
+    private final LongAdder removes = new LongAdder();
+
+    /**
+     * Number of searches.
+     */
+    private final LongAdder searches = new LongAdder();
+
+    /**
+     * Number of zigzig operations.
+     */
+    private final LongAdder zigzigs = new LongAdder();
+
+    /**
+     * Number of zigzag operations.
+     */
+    private final LongAdder zigzags = new LongAdder();
+
+    /**
+     * Number of accessed nodes by depth.
+     */
+    private final LongAdder[] depths = newAdders(MAX_DEPTH + 1);
+
+    /**
+     * Number of operations by latency bucket.
+     */
+    private final LongAdder[] latencies = newAdders(LATENCY_BUCKETS);
+
+    /**
+     * Records an insertion.
+     *
+     * @param nanos the latency of the insertion
+     */
+    public void recordInsert(long nanos) {
+        inserts.increment();
+        recordLatency(nanos);
+    }
+
+    /**
+     * Records a removal.
+     *
+     * @param nanos the latency of the removal
+     */
+    public void recordRemove(long nanos) {
+        removes.increment();
+        recordLatency(nanos);
+    }
+
+    /**
+     * Records a search.
+     *
+     * @param nanos the latency of the search
+     */
+    public void recordSearch(long nanos) {
+        searches.increment();
+        recordLatency(nanos);
+    }
+
+    /**
+     * Records the access of a node and the rotations of its splay.
+     *
+     * @param depth   the depth of the node before the splay
+     * @param zigzigs the number of zig-zigs performed
+     * @param zigzags the number of zig-zags performed
+     */
+    public void recordAccess(int depth, int zigzigs, int zigzags) {
+        depths[Math.min(depth, MAX_DEPTH)].increment();
+        recordRotations(zigzigs, zigzags);
+    }
+
+    /**
+     * Records the rotations of a splay that is not an access, such as those
+     * bringing nodes to the root to split, join or remove.
+     *
+     * @param zigzigs the number of zig-zigs performed
+     * @param zigzags the number of zig-zags performed
+     */
+    public void recordRotations(int zigzigs, int zigzags) {
+        if (zigzigs != 0)
+            this.zigzigs.add(zigzigs);
+        if (zigzags != 0)
+            this.zigzags.add(zigzags);
+    }
+
+    /**
+     * Returns a copy of the metrics. Counters updated concurrently may or may
+     * not be included.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(inserts.sum(), removes.sum(), searches.sum(), zigzigs.sum(), zigzags.sum(),
+                sums(depths), sums(latencies));
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server under the name
+     * `SplayTree:type=SplayMetrics,name=` followed by the given name.
+     *
+     * @param name the name of the metrics
+     * @return the object name the metrics were registered under
+     * @throws JMException if the metrics cannot be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SplayTree:type=SplayMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Returns the number of insertions.
+     *
+     * @return the number of insertions
+     */
+    @Override
+    public long getInsertCount() {
+        return inserts.sum();
+    }
+
+    /**
+     * Returns the number of removals.
+     *
+     * @return the number of removals
+     */
+    @Override
+    public long getRemoveCount() {
+        return removes.sum();
+    }
+
+    /**
+     * Returns the number of searches.
+     *
+     * @return the number of searches
+     */
+    @Override
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    /**
+     * Returns the number of zigzig operations.
+     *
+     * @return the number of zig-zigs
+     */
+    @Override
+    public long getZigzigCount() {
+        return zigzigs.sum();
+    }
+
+    /**
+     * Returns the number of zigzag operations.
+     *
+     * @return the number of zig-zags
+     */
+    @Override
+    public long getZigzagCount() {
+        return zigzags.sum();
+    }
+
+    /**
+     * Returns the mean depth of the accessed nodes.
+     *
+     * @return the mean depth
+     */
+    @Override
+    public double getMeanAccessDepth() {
+        return snapshot().meanAccessDepth();
+    }
+
+    /**
+     * Returns an upper bound of the median latency, in nanoseconds.
+     *
+     * @return the median latency
+     */
+    @Override
+    public long getLatencyMedian() {
+        return snapshot().latencyPercentile(0.5);
+    }
+
+    /**
+     * Returns an upper bound of the 99th percentile latency, in nanoseconds.
+     *
+     * @return the 99th percentile latency
+     */
+    @Override
+    public long getLatency99thPercentile() {
+        return snapshot().latencyPercentile(0.99);
+    }
+
+    /**
+     * Returns an upper bound of the 99.9th percentile latency, in nanoseconds.
+     *
+     * @return the 99.9th percentile latency
+     */
+    @Override
+    public long getLatency999thPercentile() {
+        return snapshot().latencyPercentile(0.999);
+    }
+
+    /**
+     * Resets every counter to zero.
+     */
+    @Override
+    public void reset() {
+        inserts.reset();
+        removes.reset();
+        searches.reset();
+        zigzigs.reset();
+        zigzags.reset();
+        for (LongAdder adder : depths)
+            adder.reset();
+        for (LongAdder adder : latencies)
+            adder.reset();
+    }
+
+    /**
+     * Counts the latency in its bucket.
+     *
+     * @param nanos the latency
+     */
+    private void recordLatency(long nanos) {
+        int bucket = nanos <= 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos), LATENCY_BUCKETS - 1);
+        latencies[bucket].increment();
+    }
+
+    /**
+     * Returns an array of new LongAdders.
+     *
+     * @param length the number of adders
+     * @return the adders
+     */
+    private static LongAdder[] newAdders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    /**
+     * Returns the sums of the LongAdders.
+     *
+     * @param adders the adders
+     * @return the sums
+     */
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++)
+            sums[i] = adders[i].sum();
+        return sums;
+    }
+}
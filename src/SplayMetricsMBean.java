@@ -0,0 +1,31 @@
+/**
+ * A simple management interface prototype the attributes and operations of
+ * SplayMetrics exposed through JMX.
+ * <p>
+ *
+ * Latencies are in nanoseconds and rounded up to the next power of two, the
+ * resolution of the latency histogram.
+ *
+ * @see SplayMetrics
+ */
+public interface SplayMetricsMBean {
+    public long getInsertCount();
+
+    public long getRemoveCount();
+
+    public long getSearchCount();
+
+    public long getZigzigCount();
+
+    public long getZigzagCount();
+
+    public double getMeanAccessDepth();
+
+    public long getLatencyMedian();
+
+    public long getLatency99thPercentile();
+
+    public long getLatency999thPercentile();
+
+    public void reset();
+}
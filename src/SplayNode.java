@@ -6,6 +6,16 @@
  * @see SplayTree
  */
 public class SplayNode extends TreeNode {
+    /**
+     * Number of nodes in the subtree rooted at this node (including itself).
+     */
+    protected int subtreeSize = 1;
+
+    /**
+     * Number of times the data value was inserted and not removed since.
+     */
+    protected int count = 1;
+
     /**
      * Constructs a new TreeNode using default parameters.
      */
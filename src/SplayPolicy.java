@@ -0,0 +1,201 @@
+import java.util.Random;
+
+/**
+ * A simple policy interface prototype the method needing to be overridden to
+ * decide whether SplayTree splays the node reached by an access.
+ * <p>
+ *
+ * Splaying every accessed node all the way up is what gives splay trees their
+ * locality, but on read-heavy workloads the rotations can cost more than they
+ * save. A policy can skip some of the splays (with a probability, below a depth
+ * or between every k-th access) or ask for semi-splaying, which only rotates
+ * the parent in the zig-zig case and roughly halves the depth of the access
+ * path instead of moving the node to the top.
+ * <p>
+ *
+ * Policies only apply to accesses (insertions, searches and ordered queries).
+ * Restructuring operations such as `split` and `join` always splay all the way
+ * since they rely on the node ending up at the root. Policies may keep state
+ * and are not meant to be shared between trees.
+ *
+ * @see SplayTree
+ */
+public interface SplayPolicy {
+    /**
+     * Decides whether to splay the accessed node.
+     *
+     * @param depth the depth of the node (0 for the root)
+     * @return whether to splay the node
+     */
+    public boolean shouldSplay(int depth);
+
+    /**
+     * Returns whether splays are semi-splays.
+     *
+     * @return whether to semi-splay
+     */
+    public default boolean isSemiSplay() {
+        return false;
+    }
+
+    /**
+     * Returns the policy splaying every accessed node, which is the default.
+     *
+     * @return the policy
+     */
+    public static SplayPolicy full() {
+        return new SplayPolicy() {
+            @Override
+            public boolean shouldSplay(int depth) {
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "full";
+            }
+        };
+    }
+
+    /**
+     * Returns the policy semi-splaying every accessed node.
+     *
+     * @return the policy
+     */
+    public static SplayPolicy semiSplay() {
+        return new SplayPolicy() {
+            @Override
+            public boolean shouldSplay(int depth) {
+                return true;
+            }
+
+            @Override
+            public boolean isSemiSplay() {
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return "semi-splay";
+            }
+        };
+    }
+
+    /**
+     * Returns the policy splaying each accessed node with the given probability.
+     *
+     * @param probability the probability of splaying
+     * @param seed        the seed of the random number generator
+     * @return the policy
+     */
+    public static SplayPolicy probabilistic(double probability, long seed) {
+        if (probability < 0 || probability > 1)
+            throw new IllegalArgumentException("Probability out of range: " + probability);
+
+        Random random = new Random(seed);
+        return new SplayPolicy() {
+            @Override
+            public boolean shouldSplay(int depth) {
+                return random.nextDouble() < probability;
+            }
+
+            @Override
+            public String toString() {
+                return "probability " + probability;
+            }
+        };
+    }
+
+    /**
+     * Returns the policy splaying only the accessed nodes deeper than the given
+     * threshold.
+     *
+     * @param threshold the largest depth left unsplayed
+     * @return the policy
+     */
+    public static SplayPolicy depthThreshold(int threshold) {
+        return new SplayPolicy() {
+            @Override
+            public boolean shouldSplay(int depth) {
+                return depth > threshold;
+            }
+
+            @Override
+            public String toString() {
+                return "depth > " + threshold;
+            }
+        };
+    }
+
+    /**
+     * Returns the policy splaying only every k-th accessed node.
+     *
+     * @param k the number of accesses per splay
+     * @return the policy
+     */
+    public static SplayPolicy everyKth(int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("Period must be positive: " + k);
+
+        return new SplayPolicy() {
+            private int accesses = 0;
+
+            @Override
+            public boolean shouldSplay(int depth) {
+                if (++accesses < k)
+                    return false;
+                accesses = 0;
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                int tens = k % 100;
+                int units = k % 10;
+                String suffix = tens >= 11 && tens <= 13 ? "th"
+                        : units == 1 ? "st" : units == 2 ? "nd" : units == 3 ? "rd" : "th";
+                return "every " + k + suffix + " access";
+            }
+        };
+    }
+
+    /**
+     * Main class entry point. Replays the operation log provided by name in
+     * command line argument on one SplayTree per policy and prints out the
+     * number of comparisons, zig-zig and zig-zag operations of each.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayPolicy &lt;textFileName.txt&gt;`
+     * <p>
+     * `java SplayPolicy Operations.txt`
+     *
+     * @param args contains the file name of the operation log
+     * @throws Exception if the log cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        SplayPolicy[] policies = { full(), semiSplay(), probabilistic(0.5, 1), depthThreshold(8), everyKth(2),
+                everyKth(4) };
+
+        for (SplayPolicy policy : policies) {
+            SplayTree splayTree = new SplayTree(policy);
+            OperationReader.replay(args[0], (action, data) -> {
+                switch (action) {
+                case 'a':
+                    splayTree.insert(data);
+                    break;
+                case 'r':
+                    splayTree.remove(data);
+                    break;
+                case 'f':
+                    splayTree.search(data);
+                    break;
+                }
+            });
+
+            System.out.println(policy + ": " + splayTree.getCompareCount() + " compares, "
+                    + splayTree.getZigzigCount() + " Zig-Zigs, " + splayTree.getZigzagCount() + " Zig-Zags");
+        }
+    }
+}
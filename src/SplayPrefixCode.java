@@ -0,0 +1,213 @@
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Scanner;
+
+/**
+ * An adaptive prefix code based on the splay-prefix algorithm of Jones
+ * (Application of Splay Trees to Data Compression, 1988).
+ * <p>
+ *
+ * The code tree starts out as a complete binary tree with one leaf per ASCII
+ * character. The code of a character is the path from the root to its leaf
+ * ('0' for a left branch, '1' for a right branch). After each character is
+ * encoded or decoded, its leaf is semi-splayed towards the root: every pair of
+ * nodes on the path is twisted so that the depth of the leaf is roughly
+ * halved. Recently used characters therefore get shorter codes, in a single
+ * pass and without any frequency table.
+ * <p>
+ *
+ * The encoder and decoder must start from the same state, so a text encoded
+ * by one instance is decoded by a freshly constructed (or `reset`) one.
+ *
+ * @see Huffman
+ * @see SplayTree
+ */
+public class SplayPrefixCode {
+    /**
+     * Number of distinct character values supported by the code tree.
+     */
+    private static final int ALPHABET_SIZE = 128;
+
+    /**
+     * Index of the root node. Internal nodes use indices 1 to ALPHABET_SIZE - 1
+     * and the leaf of character c uses index c + ALPHABET_SIZE.
+     */
+    private static final int ROOT = 1;
+
+    /**
+     * Parent of every node.
+     */
+    private final int[] up = new int[2 * ALPHABET_SIZE];
+
+    /**
+     * Left child of every internal node.
+     */
+    private final int[] left = new int[ALPHABET_SIZE];
+
+    /**
+     * Right child of every internal node.
+     */
+    private final int[] right = new int[ALPHABET_SIZE];
+
+    /**
+     * Number of semi-rotations (twists) performed.
+     */
+    private long twistCount = 0;
+
+    /**
+     * Constructs a new SplayPrefixCode with the initial balanced code tree.
+     */
+    public SplayPrefixCode() {
+        reset();
+    }
+
+    /**
+     * Restores the initial balanced code tree.
+     */
+    public void reset() {
+        for (int i = ROOT + 1; i < 2 * ALPHABET_SIZE; i++)
+            up[i] = i / 2;
+        for (int i = ROOT; i < ALPHABET_SIZE; i++) {
+            left[i] = 2 * i;
+            right[i] = 2 * i + 1;
+        }
+        twistCount = 0;
+    }
+
+    /**
+     * Encodes the given string, adapting the code tree after each character.
+     *
+     * @param text the text string wished to be encoded
+     * @return the string encoded
+     */
+    public String encode(String text) {
+        StringBuilder encoding = new StringBuilder(text.length() * 8);
+        char[] path = new char[ALPHABET_SIZE];
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET_SIZE)
+                throw new IllegalArgumentException("Not an ASCII character: " + (int) c);
+
+            // Collect the path from the leaf up to the root, then emit it root first.
+            int length = 0;
+            for (int node = c + ALPHABET_SIZE; node != ROOT; node = up[node])
+                path[length++] = right[up[node]] == node ? '1' : '0';
+            while (length > 0)
+                encoding.append(path[--length]);
+
+            splay(c);
+        }
+
+        return encoding.toString();
+    }
+
+    /**
+     * Decodes the given bit string, adapting the code tree after each character.
+     *
+     * @param bits the string of '0' and '1' characters to decode
+     * @return the decoded text
+     */
+    public String decode(String bits) {
+        StringBuilder text = new StringBuilder();
+        int position = 0;
+
+        while (position < bits.length()) {
+            int node = ROOT;
+            while (node < ALPHABET_SIZE) {
+                if (position == bits.length())
+                    throw new IllegalArgumentException("Truncated code at bit " + position);
+                node = bits.charAt(position++) == '0' ? left[node] : right[node];
+            }
+
+            char c = (char) (node - ALPHABET_SIZE);
+            text.append(c);
+            splay(c);
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Returns the number of semi-rotations performed since the last reset.
+     *
+     * @return the number of twists
+     */
+    public long getTwistCount() {
+        return twistCount;
+    }
+
+    /**
+     * Semi-splays the leaf of the character towards the root. At every step the
+     * node and its parent are exchanged with the sibling of the parent, which
+     * moves the node up one level, then the splay continues from the former
+     * grandparent.
+     *
+     * @param c the character
+     */
+    private void splay(char c) {
+        int node = c + ALPHABET_SIZE;
+
+        while (node != ROOT) {
+            int parent = up[node];
+            if (parent == ROOT)
+                break;
+
+            int grandparent = up[parent];
+            int uncle = left[grandparent];
+            if (parent == uncle) {
+                uncle = right[grandparent];
+                right[grandparent] = node;
+            } else {
+                left[grandparent] = node;
+            }
+
+            if (node == left[parent])
+                left[parent] = uncle;
+            else
+                right[parent] = uncle;
+
+            up[node] = grandparent;
+            up[uncle] = parent;
+            twistCount++;
+
+            node = grandparent;
+        }
+    }
+
+    /**
+     * Main class entry point. Without arguments, prompts user to entry string
+     * and prints out the encoded string. Otherwise prints out the number of bits
+     * needed to encode the text file provided by name in command line argument.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayPrefixCode &#91;textFileName.txt&#93;`
+     * <p>
+     * `java SplayPrefixCode Jabberwock.txt`
+     *
+     * @param args contains the optional file name to encode
+     * @throws Exception if the file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            Scanner sc = new Scanner(System.in);
+            String uncoded = sc.nextLine();
+            System.out.println(new SplayPrefixCode().encode(uncoded));
+            sc.close();
+            return;
+        }
+
+        String text = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.US_ASCII);
+        SplayPrefixCode encoder = new SplayPrefixCode();
+        String bits = encoder.encode(text);
+
+        System.out.println(text.length() * 8L + " bits uncoded");
+        System.out.println(bits.length() + " bits with splay-prefix codes");
+        System.out.println(encoder.getTwistCount() + " twists");
+        System.out.println(new SplayPrefixCode().decode(bits).equals(text) ? "Round trip succeeded"
+                : "Round trip failed");
+    }
+}
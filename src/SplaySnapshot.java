@@ -0,0 +1,311 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact snapshot format recording the exact shape of a SplayTree, along with
+ * the sequence number of the operation log it reflects.
+ * <p>
+ *
+ * A snapshot starts with the four `MAGIC` bytes, a version byte, the sequence
+ * number (8 bytes), the tree size and its number of nodes (4 bytes each). The
+ * nodes follow in pre-order, each as a variable-length integer holding the
+ * zig-zag encoded difference between its data value and the one of the
+ * previous node, shifted left by three bits to make room for flags telling
+ * whether the node has a left and a right child and holds several copies of
+ * its data value, in which case the number of copies follows as another
+ * variable-length integer. A CRC-32 of everything before it ends the file.
+ * <p>
+ *
+ * Loading rebuilds the same shape in linear time with an explicit stack, then
+ * recomputes the subtree sizes by walking the nodes in reverse pre-order, where
+ * every node comes after all of its descendants. Snapshots are written to a
+ * temporary file, synced and then moved over the previous one, whose directory
+ * is synced in turn, so a crash never leaves a partial snapshot behind nor
+ * loses the move.
+ *
+ * @see SplayTree
+ * @see WriteAheadLog
+ */
+public class SplaySnapshot {
+    /**
+     * Bytes identifying a snapshot.
+     */
+    private static final byte[] MAGIC = { 'S', 'P', 'L', 'S' };
+
+    /**
+     * Version of the format.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Flag set for nodes with a left child.
+     */
+    private static final int HAS_LEFT = 1;
+
+    /**
+     * Flag set for nodes with a right child.
+     */
+    private static final int HAS_RIGHT = 2;
+
+    /**
+     * Flag set for nodes holding more than one copy of their data value.
+     */
+    private static final int HAS_COPIES = 4;
+
+    /**
+     * Number of bytes buffered when reading or writing a snapshot.
+     */
+    private static final int BUFFER_LENGTH = 1 << 16;
+
+    /**
+     * The loaded tree.
+     */
+    private final SplayTree tree;
+
+    /**
+     * Number of logged operations reflected by the tree.
+     */
+    private final long sequence;
+
+    /**
+     * Constructs a new SplaySnapshot and assigns the provided parameters to its
+     * attributes.
+     *
+     * @param tree     the loaded tree
+     * @param sequence the number of logged operations reflected by the tree
+     */
+    private SplaySnapshot(SplayTree tree, long sequence) {
+        this.tree = tree;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Returns the loaded tree.
+     *
+     * @return the tree
+     */
+    public SplayTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the number of logged operations reflected by the tree.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Writes the snapshot of the tree to the file with the provided name,
+     * replacing it atomically.
+     *
+     * @param tree     the tree
+     * @param sequence the number of logged operations reflected by the tree
+     * @param fileName the name of the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(SplayTree tree, long sequence, String fileName) throws IOException {
+        String temporaryName = fileName + ".tmp";
+        int nodeCount = tree.root == null ? 0 : ((SplayNode) tree.root).subtreeSize;
+
+        try (FileOutputStream file = new FileOutputStream(temporaryName)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(file, BUFFER_LENGTH), crc));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(sequence);
+            out.writeInt(tree.size);
+            out.writeInt(nodeCount);
+
+            // Write the nodes in pre-order, stacking right children for later.
+            TreeNode[] stack = new TreeNode[64];
+            int top = 0;
+            TreeNode node = tree.root;
+            int previous = 0;
+
+            while (node != null) {
+                int delta = node.data - previous;
+                long record = (long) ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL;
+                int copies = ((SplayNode) node).count;
+                record = record << 3 | (node.left != null ? HAS_LEFT : 0) | (node.right != null ? HAS_RIGHT : 0)
+                        | (copies > 1 ? HAS_COPIES : 0);
+                writeVarint(out, record);
+                if (copies > 1)
+                    writeVarint(out, copies);
+                previous = node.data;
+
+                if (node.left != null) {
+                    if (node.right != null) {
+                        if (top == stack.length)
+                            stack = Arrays.copyOf(stack, top * 2);
+                        stack[top++] = node.right;
+                    }
+                    node = node.left;
+                } else if (node.right != null) {
+                    node = node.right;
+                } else {
+                    node = top > 0 ? stack[--top] : null;
+                }
+            }
+
+            out.flush();
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+
+        Files.move(Paths.get(temporaryName), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        WriteAheadLog.syncDirectory(Paths.get(fileName));
+    }
+
+    /**
+     * Loads the snapshot from the file with the provided name.
+     *
+     * @param fileName the name of the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static SplaySnapshot read(String fileName) throws IOException {
+        try (FileInputStream file = new FileInputStream(fileName)) {
+            CRC32 crc = new CRC32();
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, BUFFER_LENGTH), crc);
+            DataInputStream in = new DataInputStream(checked);
+
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                throw new IOException("Not a splay tree snapshot: " + fileName);
+            int version = in.readByte();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version + ": " + fileName);
+
+            long sequence = in.readLong();
+            int size = in.readInt();
+            int nodeCount = in.readInt();
+            if (nodeCount < 0)
+                throw new IOException("Corrupted snapshot: " + fileName);
+
+            SplayTree tree = new SplayTree();
+            TreeNode[] nodes = new TreeNode[nodeCount];
+            TreeNode[] stack = new TreeNode[64];
+            int top = 0;
+            TreeNode parent = null;
+            boolean left = false;
+            int previous = 0;
+
+            try {
+                for (int i = 0; i < nodeCount; i++) {
+                    long record = readVarint(in);
+                    int zigzag = (int) (record >>> 3);
+                    previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                    SplayNode node = new SplayNode(previous);
+                    nodes[i] = node;
+                    if ((record & HAS_COPIES) != 0) {
+                        long copies = readVarint(in);
+                        if (copies < 2 || copies > Integer.MAX_VALUE)
+                            throw new IOException("Corrupted snapshot: " + fileName);
+                        node.count = (int) copies;
+                    }
+
+                    // Link the node where the pre-order left the next free child.
+                    node.parent = parent;
+                    if (parent == null) {
+                        if (i != 0)
+                            throw new IOException("Corrupted snapshot: " + fileName);
+                        tree.root = node;
+                    } else if (left) {
+                        parent.left = node;
+                    } else {
+                        parent.right = node;
+                    }
+
+                    boolean hasLeft = (record & HAS_LEFT) != 0;
+                    boolean hasRight = (record & HAS_RIGHT) != 0;
+                    if (hasLeft) {
+                        if (hasRight) {
+                            if (top == stack.length)
+                                stack = Arrays.copyOf(stack, top * 2);
+                            stack[top++] = node;
+                        }
+                        parent = node;
+                        left = true;
+                    } else if (hasRight) {
+                        parent = node;
+                        left = false;
+                    } else {
+                        parent = top > 0 ? stack[--top] : null;
+                        left = false;
+                    }
+                }
+            } catch (EOFException e) {
+                throw new IOException("Truncated snapshot: " + fileName);
+            }
+
+            if (parent != null || top != 0)
+                throw new IOException("Corrupted snapshot: " + fileName);
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected)
+                throw new IOException("Snapshot checksum mismatch: " + fileName);
+
+            // Descendants follow their ancestors in pre-order.
+            for (int i = nodeCount - 1; i >= 0; i--) {
+                SplayNode node = (SplayNode) nodes[i];
+                node.subtreeSize = 1 + (node.left == null ? 0 : ((SplayNode) node.left).subtreeSize)
+                        + (node.right == null ? 0 : ((SplayNode) node.right).subtreeSize);
+            }
+            tree.size = size;
+
+            return new SplaySnapshot(tree, sequence);
+        }
+    }
+
+    /**
+     * Writes the value as a variable-length integer, 7 bits per byte, least
+     * significant first.
+     *
+     * @param out   the stream
+     * @param value the value, not negative
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a variable-length integer written by `writeVarint`.
+     *
+     * @param in the stream
+     * @return the value
+     * @throws IOException if the stream cannot be read
+     */
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+}
@@ -1,5 +1,11 @@
-import java.util.Scanner;
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
 
 /**
  * A Splay Code extension of the Tree class. Implements the Splay tree algorithm
@@ -10,10 +16,48 @@ import java.io.File;
  * operation (if needed) to push the node up the root if it is just below it (i.e.
  * a child of the root) when it ends up there. This has no practical use of course
  * other than being cosmetically different than traditional implementations.
+ * <p>
+ * 
+ * Every node also tracks the size of its subtree, maintained through rotations,
+ * insertions and removals, which answers order statistic queries (`rank`,
+ * `select` and `countInRange`) in a single descent.
+ * <p>
+ * 
+ * The tree is a multiset: a key inserted several times is held by a single
+ * node counting its copies, so repeated keys neither lengthen paths nor grow
+ * the tree, whose height only depends on the number of distinct keys. `count`
+ * returns the number of copies of a key and `remove` drops one of them,
+ * unlinking the node with the last one. `size` and the order statistics count
+ * distinct keys.
+ * <p>
+ * 
+ * Ordered queries (`floor`, `ceiling`, `predecessor`, `successor`) and range
+ * iteration walk the tree through parent links without allocating any
+ * intermediate list. Trees can be split at a key and joined back, which lets
+ * `removeRange` drop a whole range of keys with two splits and one join.
+ * Removing a node works the same way: it is splayed to the root and its two
+ * subtrees are joined, which keeps the amortized logarithmic bound for
+ * removals too.
+ * <p>
+ * 
+ * Sorted keys can be loaded in linear time with `fromSorted`, which builds a
+ * perfectly balanced tree instead of the path that inserting them one by one
+ * produces, and `insertSorted` merges a sorted batch into an existing tree by
+ * relinking its nodes into a new balanced shape.
+ * <p>
+ * 
+ * Whether (and how) the node reached by an access is splayed is decided by a
+ * SplayPolicy, which splays every such node unless another one is provided.
+ * <p>
+ * 
+ * Operation counts, rotations, access depths and latencies can be recorded
+ * into SplayMetrics, which are disabled (null) by default.
  *
  * @see Tree
  * @see TreeNode
  * @see SplayNode
+ * @see SplayPolicy
+ * @see SplayMetrics
  */
 public class SplayTree extends Tree {
     /**
@@ -31,29 +75,88 @@ public class SplayTree extends Tree {
      */
     private int zigzagCount = 0;
 
+    /**
+     * Policy deciding whether accessed nodes are splayed.
+     */
+    private SplayPolicy policy;
+
+    /**
+     * Metrics recorded by the operations (or null if disabled).
+     */
+    private SplayMetrics metrics;
+
     /**
      * Constructs a new SplayTree with default attributes.
      */
     public SplayTree() {
+        this(SplayPolicy.full());
+    }
+
+    /**
+     * Constructs a new SplayTree splaying accessed nodes according to the
+     * provided policy.
+     * 
+     * @param policy the splay policy
+     */
+    public SplayTree(SplayPolicy policy) {
         root = null;
+        this.policy = policy;
     }
 
     /**
-     * Inserts new node in tree with provided data value.
+     * Inserts new node in tree with provided data value, or counts one more copy
+     * of the node already holding it.
      * 
      * @param data the data value
      */
     public void insert(int data) {
+        insert(data, true);
+    }
+
+    /**
+     * Inserts new node in tree with provided data value, unless a node already
+     * holds it, and returns if it was inserted. The search for the data value
+     * is the same as that of `insert`, so that a set backed by the tree does
+     * not have to search before inserting.
+     * 
+     * @param data the data value
+     * @return whether a node was inserted
+     */
+    public boolean insertIfAbsent(int data) {
+        return insert(data, false);
+    }
+
+    /**
+     * Inserts new node in tree with provided data value, or optionally counts
+     * one more copy of the node already holding it.
+     * 
+     * @param data the data value
+     * @param copy whether to count a copy of a data value already in the tree
+     * @return whether a node was inserted
+     */
+    private boolean insert(int data, boolean copy) {
+        long start = metrics == null ? 0 : System.nanoTime();
+
+        // A key already in the tree only gains a copy (its node is splayed by
+        // the search).
+        TreeNode found = searchNode(data);
+        if (found != null) {
+            if (copy)
+                ((SplayNode) found).count++;
+            if (metrics != null)
+                metrics.recordInsert(System.nanoTime() - start);
+            return false;
+        }
+
         TreeNode node = root;
         TreeNode parent = null;
-
-        // Increment tree size if not already in it.
-        if (!search(data))
-            size++;
+        int depth = 0;
+        size++;
 
         // Descend tree to find which node should contain new node as its child.
         while (node != null) {
             parent = node;
+            depth++;
             if (data < parent.data)
                 node = node.left;
             else
@@ -70,22 +173,38 @@ public class SplayTree extends Tree {
             root = node;
         else if (data < parent.data)
             parent.left = node;
-        else // (data >= parent.data) This take care of duplicates.
+        else
             parent.right = node;
 
+        // Account for the new node in the subtree sizes of its ancestors.
+        for (TreeNode ancestor = parent; ancestor != null; ancestor = ancestor.parent)
+            ((SplayNode) ancestor).subtreeSize++;
+
         // Splay the node.
-        splay(node);
+        access(node, depth);
+
+        if (metrics != null)
+            metrics.recordInsert(System.nanoTime() - start);
+        return true;
     }
 
     /**
-     * Removes the first node from the tree with the given data value.
+     * Removes one copy of the given data value from the tree, and its node with
+     * the last copy.
      * 
      * @param data the data value
      */
     public void remove(int data) {
-        // No splaying needed to be done here since it will be done in the
-        // call to `searchNode` method.
-        remove(searchNode(data));
+        long start = metrics == null ? 0 : System.nanoTime();
+
+        TreeNode node = searchNode(data);
+        if (node != null && ((SplayNode) node).count > 1)
+            ((SplayNode) node).count--;
+        else
+            remove(node);
+
+        if (metrics != null)
+            metrics.recordRemove(System.nanoTime() - start);
     }
 
     /**
@@ -95,11 +214,390 @@ public class SplayTree extends Tree {
      * @return whether node with data value was found
      */
     public boolean search(int data) {
-        return searchNode(data) != null;
+        if (metrics == null)
+            return searchNode(data) != null;
+
+        long start = System.nanoTime();
+        boolean found = searchNode(data) != null;
+        metrics.recordSearch(System.nanoTime() - start);
+        return found;
+    }
+
+    /**
+     * Returns the number of copies of the given data value in the tree (0 if it
+     * is not in it), splaying its node.
+     * 
+     * @param data the data value
+     * @return the number of copies
+     */
+    public int count(int data) {
+        TreeNode node = searchNode(data);
+        return node == null ? 0 : ((SplayNode) node).count;
+    }
+
+    /**
+     * Returns the number of nodes with a data value smaller than the given one.
+     * The last node reached is splayed.
+     * 
+     * @param data the data value
+     * @return the rank
+     */
+    public int rank(int data) {
+        return countBelow(data, false);
+    }
+
+    /**
+     * Returns the data value of the node at the given position (0-based) in
+     * ascending order, splaying that node.
+     * 
+     * @param index the position
+     * @return the data value
+     */
+    public int select(int index) {
+        if (index < 0 || root == null || index >= subtreeSize(root))
+            throw new IndexOutOfBoundsException("No node at position " + index);
+
+        TreeNode node = root;
+        for (int depth = 0;; depth++) {
+            int leftSize = subtreeSize(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                access(node, depth);
+                return node.data;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes with a data value between `low` and `high`
+     * (both inclusive).
+     * 
+     * @param low  the lowest data value
+     * @param high the highest data value
+     * @return the number of nodes in range
+     */
+    public int countInRange(int low, int high) {
+        if (low > high)
+            return 0;
+        return countBelow(high, true) - countBelow(low, false);
+    }
+
+    /**
+     * Returns the greatest data value lower than or equal to the given one (or
+     * null if there is none), splaying its node.
+     * 
+     * @param data the data value
+     * @return the floor data value
+     */
+    public Integer floor(int data) {
+        return splayedData(lastAtMost(data, true));
+    }
+
+    /**
+     * Returns the least data value greater than or equal to the given one (or
+     * null if there is none), splaying its node.
+     * 
+     * @param data the data value
+     * @return the ceiling data value
+     */
+    public Integer ceiling(int data) {
+        return splayedData(firstAtLeast(data, true));
+    }
+
+    /**
+     * Returns the greatest data value strictly lower than the given one (or null
+     * if there is none), splaying its node.
+     * 
+     * @param data the data value
+     * @return the predecessor data value
+     */
+    public Integer predecessor(int data) {
+        return splayedData(lastAtMost(data, false));
+    }
+
+    /**
+     * Returns the least data value strictly greater than the given one (or null
+     * if there is none), splaying its node.
+     * 
+     * @param data the data value
+     * @return the successor data value
+     */
+    public Integer successor(int data) {
+        return splayedData(firstAtLeast(data, false));
+    }
+
+    /**
+     * Passes every data value between `low` and `high` (both inclusive) to the
+     * consumer in ascending order, once per node. The consumer must not modify
+     * the tree.
+     * 
+     * @param low      the lowest data value
+     * @param high     the highest data value
+     * @param consumer the consumer of the data values
+     */
+    public void forEachInRange(int low, int high, IntConsumer consumer) {
+        PrimitiveIterator.OfInt iterator = rangeIterator(low, high);
+        while (iterator.hasNext())
+            consumer.accept(iterator.nextInt());
+    }
+
+    /**
+     * Returns an iterator over the data values between `low` and `high` (both
+     * inclusive) in ascending order. The first node in range is splayed, then
+     * the iterator follows parent links from node to node. The tree must not be
+     * modified while iterating.
+     * 
+     * @param low  the lowest data value
+     * @param high the highest data value
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt rangeIterator(int low, int high) {
+        TreeNode first = firstAtLeast(low, true);
+        if (first != null)
+            access(first, depth(first));
+
+        return new PrimitiveIterator.OfInt() {
+            private TreeNode next = first != null && first.data <= high ? first : null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                int data = next.data;
+                next = inOrderSuccessor(next);
+                if (next != null && next.data > high)
+                    next = null;
+                return data;
+            }
+        };
+    }
+
+    /**
+     * Splits the tree: nodes with a data value greater than or equal to the
+     * given one are moved to a new tree, which is returned.
+     * 
+     * @param data the data value to split at
+     * @return the tree of the nodes greater than or equal to the data value
+     */
+    public SplayTree split(int data) {
+        SplayTree greater = new SplayTree();
+        TreeNode node = firstAtLeast(data, true);
+        if (node == null)
+            return greater;
+
+        // With the first node in the upper part at the root, everything to its
+        // left belongs to the lower part.
+        splayToRoot(node);
+        TreeNode lower = node.left;
+        node.left = null;
+        updateSubtreeSize(node);
+        if (lower != null)
+            lower.parent = null;
+
+        greater.root = node;
+        greater.size = subtreeSize(node);
+        root = lower;
+        size = subtreeSize(lower);
+        return greater;
+    }
+
+    /**
+     * Moves every node of the other tree into this one. Every data value of the
+     * other tree must be greater than or equal to those of this tree. If the
+     * smallest data value of the other tree is the largest of this tree, its
+     * copies are added to those of the node of this tree.
+     * 
+     * @param other the tree to join, left empty afterwards
+     */
+    public void join(SplayTree other) {
+        if (other == this || other.root == null)
+            return;
+
+        if (root == null) {
+            root = other.root;
+            size = subtreeSize(root);
+        } else {
+            TreeNode max = root;
+            while (max.right != null)
+                max = max.right;
+            TreeNode min = other.root;
+            while (min.left != null)
+                min = min.left;
+            if (max.data > min.data)
+                throw new IllegalArgumentException("Trees overlap: " + max.data + " > " + min.data);
+
+            // The maximum has no right child once at the root.
+            splayToRoot(max);
+            if (max.data == min.data) {
+                // The minimum has no left child once at the root of the other
+                // tree, and only its copies remain to be moved.
+                other.splayToRoot(min);
+                ((SplayNode) max).count += ((SplayNode) min).count;
+                other.root = min.right;
+                if (other.root != null)
+                    other.root.parent = null;
+                min.right = null;
+            }
+            if (other.root != null) {
+                max.right = other.root;
+                other.root.parent = max;
+                updateSubtreeSize(max);
+            }
+            size = subtreeSize(max);
+        }
+
+        other.root = null;
+        other.size = 0;
+    }
+
+    /**
+     * Removes every node with a data value between `low` and `high` (both
+     * inclusive) by splitting the range off and joining the remaining parts.
+     * 
+     * @param low  the lowest data value
+     * @param high the highest data value
+     * @return the number of nodes removed
+     */
+    public int removeRange(int low, int high) {
+        if (low > high)
+            return 0;
+
+        SplayTree range = split(low);
+        SplayTree upper = high == Integer.MAX_VALUE ? new SplayTree() : range.split(high + 1);
+        join(upper);
+        return subtreeSize(range.root);
+    }
+
+    /**
+     * Builds a balanced tree from data values sorted in ascending order, in
+     * linear time. Repeated data values become copies counted by one node.
+     * 
+     * @param data the sorted data values
+     * @return the tree
+     */
+    public static SplayTree fromSorted(int[] data) {
+        SplayTree tree = new SplayTree();
+        TreeNode[] nodes = new TreeNode[data.length];
+        int distinct = 0;
+
+        for (int i = 0; i < data.length; i++) {
+            if (i > 0 && data[i] < data[i - 1])
+                throw new IllegalArgumentException("Data values not sorted at index " + i);
+            if (i > 0 && data[i] == data[i - 1])
+                ((SplayNode) nodes[distinct - 1]).count++;
+            else
+                nodes[distinct++] = new SplayNode(data[i]);
+        }
+
+        tree.root = link(nodes, 0, distinct - 1, null);
+        tree.size = distinct;
+        return tree;
+    }
+
+    /**
+     * Builds a balanced tree from the first `count` data values of the iterator,
+     * sorted in strictly ascending order, in linear time and without buffering
+     * them. Since the shape is decided before reading them, the data values
+     * must be distinct.
+     * 
+     * @param data  the sorted data values
+     * @param count the number of data values to take
+     * @return the tree
+     */
+    public static SplayTree fromSorted(PrimitiveIterator.OfInt data, int count) {
+        SplayTree tree = new SplayTree();
+        tree.root = build(data, count, null, new long[] { Long.MIN_VALUE });
+        tree.size = count;
+        return tree;
+    }
+
+    /**
+     * Merges data values sorted in ascending order into the tree in a single
+     * pass over both, in O(n + m) time. Existing nodes are reused and relinked
+     * with the new ones into a balanced shape, and data values already in the
+     * tree (or repeated in the batch) are counted as copies.
+     * 
+     * @param batch the sorted data values
+     */
+    public void insertSorted(int[] batch) {
+        for (int i = 1; i < batch.length; i++) {
+            if (batch[i] < batch[i - 1])
+                throw new IllegalArgumentException("Data values not sorted at index " + i);
+        }
+
+        int treeSize = subtreeSize(root);
+        TreeNode[] nodes = new TreeNode[treeSize + batch.length];
+        TreeNode node = root;
+        if (node != null) {
+            while (node.left != null)
+                node = node.left;
+        }
+
+        int merged = 0;
+        int next = 0;
+        while (node != null || next < batch.length) {
+            if (node != null && (next == batch.length || node.data <= batch[next])) {
+                nodes[merged++] = node;
+                node = inOrderSuccessor(node);
+            } else if (merged > 0 && nodes[merged - 1].data == batch[next]) {
+                ((SplayNode) nodes[merged - 1]).count++;
+                next++;
+            } else {
+                nodes[merged++] = new SplayNode(batch[next++]);
+            }
+        }
+
+        root = link(nodes, 0, merged - 1, null);
+        size = merged;
+    }
+
+    /**
+     * Returns the policy deciding whether accessed nodes are splayed.
+     * 
+     * @return the splay policy
+     */
+    public SplayPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the policy deciding whether accessed nodes are splayed.
+     * 
+     * @param policy the splay policy
+     */
+    public void setPolicy(SplayPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the metrics recorded by the operations.
+     * 
+     * @return the metrics (or null if disabled)
+     */
+    public SplayMetrics getMetrics() {
+        return metrics;
     }
 
     /**
-     * Returns size (total number of nodes) of tree.
+     * Sets the metrics recorded by the operations, or disables them.
+     * 
+     * @param metrics the metrics (or null to disable them)
+     */
+    public void setMetrics(SplayMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns size (total number of nodes, or distinct data values) of tree.
      * 
      * @return the size
      */
@@ -107,6 +605,33 @@ public class SplayTree extends Tree {
         return size;
     }
 
+    /**
+     * Returns the number of comparison operations.
+     * 
+     * @return the number of compares
+     */
+    public int getCompareCount() {
+        return compareCount;
+    }
+
+    /**
+     * Returns the number of zigzig operations.
+     * 
+     * @return the number of zig-zigs
+     */
+    public int getZigzigCount() {
+        return zigzigCount;
+    }
+
+    /**
+     * Returns the number of zigzag operations.
+     * 
+     * @return the number of zig-zags
+     */
+    public int getZigzagCount() {
+        return zigzagCount;
+    }
+
     /**
      * Traverses the tree in post-order and prints to the console the number
      * comparisons, zig-zig, and zig-zag operations at the provided number of operations.
@@ -114,18 +639,27 @@ public class SplayTree extends Tree {
      * @param stepCount the number of completed operations
      */
     public void postOrderTraverse(int stepCount) {
-        System.out.print("Traversal at " + stepCount + ": ");
+        String newLine = System.lineSeparator();
 
-        postOrderTraverse(root);
-
-        System.out.println();
-        System.out.println(compareCount + (compareCount > 1 ? " compares" : " compare"));
-        System.out.println(zigzigCount + (zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig"));
-        System.out.println(zigzagCount + (zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag"));
+        try {
+            // Buffer the whole report rather than writing each node to the console.
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_LENGTH);
+            out.append("Traversal at " + stepCount + ": ");
+            postOrderTraverse(root, out);
+            out.append(newLine);
+            out.append(compareCount + (compareCount > 1 ? " compares" : " compare") + newLine);
+            out.append(zigzigCount + (zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig") + newLine);
+            out.append(zigzagCount + (zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag") + newLine);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * Removes specified node from the tree.
+     * Removes specified node from the tree. The node is splayed to the root,
+     * then the maximum of its left subtree is splayed to the root of that
+     * subtree, where it has no right child, and adopts the right subtree.
      *
      * @param node the node to remove
      */
@@ -133,49 +667,31 @@ public class SplayTree extends Tree {
         if (node == null)
             return;
 
-        TreeNode temp;
-        TreeNode child;
-        TreeNode parent;
-
-        // Account for the 3 cases in which the node to remove has children.
-        if (node.left != null && node.right != null) {
-            // Node has both left and right children.
-            temp = node.left;
-
-            // Find the rightmost leaf node.
-            while (temp.right != null)
-                temp = temp.right;
-
-            // Reassign the value to the rightmost leaf node value.
-            child = temp.left;
-            node.data = temp.data;
-        } else if (node.left != null) {
-            // Node to remove has only a left child.
-            temp = node;
-            child = node.left;
-        } else {
-            // Node to remove has only a right child.
-            temp = node;
-            child = node.right;
-        }
+        splayToRoot(node);
+        TreeNode left = node.left;
+        TreeNode right = node.right;
+        node.left = null;
+        node.right = null;
+        if (right != null)
+            right.parent = null;
 
-        // Take care of link to parent branch.
-        parent = temp.parent;
-        if (child != null)
-            child.parent = parent;
+        if (left == null) {
+            root = right;
+        } else {
+            // Join the subtrees under the maximum of the left one.
+            left.parent = null;
+            root = left;
+            TreeNode max = left;
+            while (max.right != null)
+                max = max.right;
+            splayToRoot(max);
 
-        if (parent == null) {
-            // Case where the node is the root or a child of the root.
-            root = child;
-            return;
+            max.right = right;
+            if (right != null)
+                right.parent = max;
+            updateSubtreeSize(max);
         }
 
-        // Link parent's child to appropriate node.
-        if (temp == parent.left)
-            parent.left = child;
-        else
-            parent.right = child;
-
         size--; // Decrement the tree size.
     }
 
@@ -188,13 +704,13 @@ public class SplayTree extends Tree {
     private TreeNode searchNode(int data) {
         TreeNode node = root;
 
-        while (node != null) {
+        for (int depth = 0; node != null; depth++) {
             if (data < node.data) {
                 node = node.left;
             } else if (data > node.data) {
                 node = node.right;
             } else {
-                splay(node);
+                access(node, depth);
                 return node;
             }
         }
@@ -202,6 +718,203 @@ public class SplayTree extends Tree {
         return null;
     }
 
+    /**
+     * Links the nodes between `low` and `high` (both inclusive), sorted by data
+     * value, into a balanced subtree and returns its root.
+     * 
+     * @param nodes  the sorted nodes
+     * @param low    the first position
+     * @param high   the last position
+     * @param parent the parent of the subtree
+     * @return the root of the subtree (or null if empty)
+     */
+    private static TreeNode link(TreeNode[] nodes, int low, int high, TreeNode parent) {
+        if (low > high)
+            return null;
+
+        int middle = (low + high) >>> 1;
+        TreeNode node = nodes[middle];
+        node.parent = parent;
+        node.left = link(nodes, low, middle - 1, node);
+        node.right = link(nodes, middle + 1, high, node);
+        ((SplayNode) node).subtreeSize = high - low + 1;
+        return node;
+    }
+
+    /**
+     * Builds a balanced subtree of `count` nodes from the next data values of
+     * the iterator, creating nodes in ascending order.
+     * 
+     * @param data     the sorted data values
+     * @param count    the number of nodes
+     * @param parent   the parent of the subtree
+     * @param previous holder of the last data value taken, to check the order
+     * @return the root of the subtree (or null if empty)
+     */
+    private static TreeNode build(PrimitiveIterator.OfInt data, int count, TreeNode parent, long[] previous) {
+        if (count == 0)
+            return null;
+
+        int leftCount = (count - 1) / 2;
+        SplayNode node = new SplayNode();
+        node.parent = parent;
+        node.left = build(data, leftCount, node, previous);
+
+        if (!data.hasNext())
+            throw new IllegalArgumentException("Fewer data values than expected");
+        node.data = data.nextInt();
+        if (node.data <= previous[0])
+            throw new IllegalArgumentException("Data values not strictly ascending at " + node.data);
+        previous[0] = node.data;
+
+        node.right = build(data, count - 1 - leftCount, node, previous);
+        node.subtreeSize = count;
+        return node;
+    }
+
+    /**
+     * Returns the leftmost node with a data value greater than (or equal to, if
+     * `inclusive`) the given one, without splaying.
+     * 
+     * @param data      the data value
+     * @param inclusive whether a node equal to the data value qualifies
+     * @return the node (or null)
+     */
+    private TreeNode firstAtLeast(int data, boolean inclusive) {
+        TreeNode node = root;
+        TreeNode found = null;
+
+        while (node != null) {
+            if (data < node.data || (inclusive && data == node.data)) {
+                found = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the rightmost node with a data value lower than (or equal to, if
+     * `inclusive`) the given one, without splaying.
+     * 
+     * @param data      the data value
+     * @param inclusive whether a node equal to the data value qualifies
+     * @return the node (or null)
+     */
+    private TreeNode lastAtMost(int data, boolean inclusive) {
+        TreeNode node = root;
+        TreeNode found = null;
+
+        while (node != null) {
+            if (data > node.data || (inclusive && data == node.data)) {
+                found = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Splays the node, if any, and returns its data value.
+     * 
+     * @param node the node (or null)
+     * @return the data value (or null)
+     */
+    private Integer splayedData(TreeNode node) {
+        if (node == null)
+            return null;
+        access(node, depth(node));
+        return node.data;
+    }
+
+    /**
+     * Returns the node following the given one in ascending order, using
+     * parent links.
+     * 
+     * @param node the node
+     * @return the next node (or null)
+     */
+    private static TreeNode inOrderSuccessor(TreeNode node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null)
+                node = node.left;
+            return node;
+        }
+
+        while (node.parent != null && node == node.parent.right)
+            node = node.parent;
+        return node.parent;
+    }
+
+    /**
+     * Counts the nodes with a data value smaller than (or equal to, if
+     * `inclusive`) the given one, then splays the last node reached.
+     * 
+     * @param data      the data value
+     * @param inclusive whether to count nodes equal to the data value
+     * @return the number of nodes counted
+     */
+    private int countBelow(int data, boolean inclusive) {
+        TreeNode node = root;
+        TreeNode last = null;
+        int count = 0;
+        int depth = -1;
+
+        while (node != null) {
+            last = node;
+            depth++;
+            if (data < node.data || (!inclusive && data == node.data)) {
+                node = node.left;
+            } else {
+                count += subtreeSize(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        if (last != null)
+            access(last, depth);
+        return count;
+    }
+
+    /**
+     * Returns the number of ancestors of the node.
+     * 
+     * @param node the node
+     * @return the depth
+     */
+    private static int depth(TreeNode node) {
+        int depth = 0;
+        for (TreeNode ancestor = node.parent; ancestor != null; ancestor = ancestor.parent)
+            depth++;
+        return depth;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at the node (0 if null).
+     * 
+     * @param node the node
+     * @return the subtree size
+     */
+    private static int subtreeSize(TreeNode node) {
+        return node == null ? 0 : ((SplayNode) node).subtreeSize;
+    }
+
+    /**
+     * Recomputes the subtree size of the node from those of its children.
+     * 
+     * @param node the node
+     */
+    private static void updateSubtreeSize(TreeNode node) {
+        ((SplayNode) node).subtreeSize = subtreeSize(node.left) + subtreeSize(node.right) + 1;
+    }
+
     /**
      * Performs single clockwise rotation of subtree with root `parent`.
      * 
@@ -224,6 +937,10 @@ public class SplayTree extends Tree {
         parent.parent = child;
         parent.left = child.right;
         child.right = parent;
+
+        // The child now roots the whole subtree.
+        ((SplayNode) child).subtreeSize = ((SplayNode) parent).subtreeSize;
+        updateSubtreeSize(parent);
     }
 
     /**
@@ -248,6 +965,10 @@ public class SplayTree extends Tree {
         parent.parent = child;
         parent.right = child.left;
         child.left = parent;
+
+        // The child now roots the whole subtree.
+        ((SplayNode) child).subtreeSize = ((SplayNode) parent).subtreeSize;
+        updateSubtreeSize(parent);
     }
 
     /**
@@ -295,44 +1016,86 @@ public class SplayTree extends Tree {
     }
 
     /**
-     * Processes the text file using provided file name to store each line into an
-     * array of strings and returns it.
+     * Splays or semi-splays the node reached by an access, or leaves it in place,
+     * as decided by the policy.
      * 
-     * @param fileName the name of the text file
-     * @return the string array found in text file
+     * @param node  the node
+     * @param depth the depth of the node
      */
-    private static String[] processOperations(String fileName) {
-        String[] operations;
-        int fileLines = 0;
+    private void access(TreeNode node, int depth) {
+        int zigzigs = zigzigCount;
+        int zigzags = zigzagCount;
 
-        try {
-            File file = new File(fileName);
-            Scanner fileScanner = new Scanner(file);
-            while (fileScanner.hasNextLine()) {
-                fileLines++;
-                fileScanner.nextLine();
-            }
-            fileScanner.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (policy.shouldSplay(depth)) {
+            if (policy.isSemiSplay())
+                semiSplay(node);
+            else
+                splay(node);
         }
 
-        operations = new String[fileLines];
+        if (metrics != null)
+            metrics.recordAccess(depth, zigzigCount - zigzigs, zigzagCount - zigzags);
+    }
 
-        try {
-            File file = new File(fileName);
-            Scanner sc = new Scanner(file);
-            int lineCount = 0;
-            while (sc.hasNextLine()) {
-                operations[lineCount] = sc.nextLine();
-                lineCount++;
+    /**
+     * Semi-splays the node up the tree (Sleator and Tarjan). Zig-zag steps are
+     * those of `splay`, but a zig-zig step only rotates the parent above the
+     * grandparent and carries on from the parent, which roughly halves the depth
+     * of every node on the access path without moving the node to the top. Like
+     * `splay`, no zig is performed just below the root.
+     * 
+     * @param node the node
+     */
+    private void semiSplay(TreeNode node) {
+        while (node.parent != null && node.parent.parent != null) {
+            compareCount++;
+            if (node == node.parent.left) {
+                compareCount++;
+                if (node.parent == node.parent.parent.left) {
+                    zigRight(node.parent, node.parent.parent);
+                    node = node.parent;
+                    zigzigCount++;
+                } else {
+                    zigRight(node, node.parent);
+                    zigLeft(node, node.parent);
+                    zigzagCount++;
+                }
+            } else {
+                compareCount++;
+                if (node.parent == node.parent.parent.left) {
+                    zigLeft(node, node.parent);
+                    zigRight(node, node.parent);
+                    zigzagCount++;
+                } else {
+                    zigLeft(node.parent, node.parent.parent);
+                    node = node.parent;
+                    zigzigCount++;
+                }
             }
-            sc.close();
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        root = node.parent == null ? node : node.parent;
+    }
 
-        return operations;
+    /**
+     * Splays the node all the way up to the root, performing the final zig that
+     * `splay` leaves out, and records its rotations in the metrics.
+     * 
+     * @param node the node
+     */
+    private void splayToRoot(TreeNode node) {
+        int zigzigs = zigzigCount;
+        int zigzags = zigzagCount;
+
+        splay(node);
+        if (metrics != null)
+            metrics.recordRotations(zigzigCount - zigzigs, zigzagCount - zigzags);
+        if (node.parent != null) {
+            if (node == node.parent.left)
+                zigRight(node, node.parent);
+            else
+                zigLeft(node, node.parent);
+        }
+        root = node;
     }
 
     /**
@@ -356,28 +1119,30 @@ public class SplayTree extends Tree {
         if (args.length == 2)
             stepToTraverse = Integer.parseInt(args[1]);
 
-        String[] operations = processOperations(textFileName);
         SplayTree splayTree = new SplayTree();
-        int stepCount = 0;
-
-        for (String operation : operations) {
-            char action = operation.charAt(0);
+        int finalStep = stepToTraverse;
+        int[] stepCount = { 0 };
 
-            switch (action) {
-            case 'a':
-                splayTree.insert(Integer.parseInt(operation.substring(1)));
-                break;
-            case 'r':
-                splayTree.remove(Integer.parseInt(operation.substring(1)));
-                break;
-            case 'f':
-                splayTree.search(Integer.parseInt(operation.substring(1)));
-                break;
-            }
-            stepCount++;
+        try {
+            OperationReader.replay(textFileName, (action, data) -> {
+                switch (action) {
+                case 'a':
+                    splayTree.insert(data);
+                    break;
+                case 'r':
+                    splayTree.remove(data);
+                    break;
+                case 'f':
+                    splayTree.search(data);
+                    break;
+                }
+                stepCount[0]++;
 
-            if (stepToTraverse != -1 && stepToTraverse == stepCount)
-                splayTree.postOrderTraverse(stepCount);
+                if (finalStep != -1 && finalStep == stepCount[0])
+                    splayTree.postOrderTraverse(stepCount[0]);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
         }
 
         if (stepToTraverse == -1) {
@@ -387,6 +1152,6 @@ public class SplayTree extends Tree {
         }
 
         if (stepToTraverse == -2)
-            splayTree.postOrderTraverse(stepCount);
+            splayTree.postOrderTraverse(stepCount[0]);
     }
 }
\ No newline at end of file
@@ -0,0 +1,360 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A registry of independent SplayTree instances, one per tenant, keyed by id,
+ * replaying the operation logs of many tenants in parallel.
+ * <p>
+ *
+ * Trees are created on first use and kept in a concurrent map, so any number of
+ * threads can look tenants up. A tree itself is not thread-safe: it is only
+ * modified while its monitor is held, which lets the logs of different tenants
+ * be replayed at the same time while those of one tenant are replayed one after
+ * the other.
+ * <p>
+ *
+ * `replayAll` replays a batch of logs on a ForkJoinPool. The batch is split in
+ * halves down to single logs, so idle workers steal the pending halves of busy
+ * ones and a few long logs do not leave the other workers waiting. The result
+ * of every tenant (operation count, size, comparison and rotation counts,
+ * replay time and optionally the post-order traversal) is gathered into a map.
+ *
+ * @see SplayTree
+ * @see OperationReader
+ */
+public class SplayTreeRegistry {
+    /**
+     * The trees, by tenant id.
+     */
+    private final ConcurrentHashMap<String, SplayTree> trees = new ConcurrentHashMap<>();
+
+    /**
+     * The outcome of replaying the log of a tenant.
+     */
+    public static class Result {
+        /**
+         * The tenant id.
+         */
+        public final String id;
+
+        /**
+         * Number of replayed operations.
+         */
+        public final long operationCount;
+
+        /**
+         * Number of nodes of the tree after the replay.
+         */
+        public final int size;
+
+        /**
+         * Number of comparison operations of the tree.
+         */
+        public final int compareCount;
+
+        /**
+         * Number of zigzig operations of the tree.
+         */
+        public final int zigzigCount;
+
+        /**
+         * Number of zigzag operations of the tree.
+         */
+        public final int zigzagCount;
+
+        /**
+         * Time taken by the replay, in nanoseconds.
+         */
+        public final long elapsedNanos;
+
+        /**
+         * Post-order traversal of the tree after the replay (or null if not
+         * requested).
+         */
+        public final String traversal;
+
+        /**
+         * Constructs a new Result and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param id             the tenant id
+         * @param operationCount the number of replayed operations
+         * @param tree           the tree after the replay
+         * @param elapsedNanos   the time taken by the replay
+         * @param traversal      the post-order traversal (or null)
+         */
+        private Result(String id, long operationCount, SplayTree tree, long elapsedNanos, String traversal) {
+            this.id = id;
+            this.operationCount = operationCount;
+            this.size = tree.size();
+            this.compareCount = tree.getCompareCount();
+            this.zigzigCount = tree.getZigzigCount();
+            this.zigzagCount = tree.getZigzagCount();
+            this.elapsedNanos = elapsedNanos;
+            this.traversal = traversal;
+        }
+
+        /**
+         * Overrides the `toString` method.
+         *
+         * @return the string representation
+         */
+        @Override
+        public String toString() {
+            return id + ": " + operationCount + " operations, " + size + " nodes, " + compareCount + " compares, "
+                    + zigzigCount + " Zig-Zigs, " + zigzagCount + " Zig-Zags in " + elapsedNanos / 1000000 + " ms";
+        }
+    }
+
+    /**
+     * Replays a range of the batch of logs, splitting it for other workers to
+     * steal until a single log is left.
+     */
+    private class ReplayTask extends RecursiveAction {
+        /**
+         * Serialization version, as required of a RecursiveAction.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The tenant ids of the batch.
+         */
+        private final String[] ids;
+
+        /**
+         * The log file names of the batch, by position.
+         */
+        private final String[] fileNames;
+
+        /**
+         * First position of the range.
+         */
+        private final int low;
+
+        /**
+         * Position after the last one of the range.
+         */
+        private final int high;
+
+        /**
+         * Whether to record the traversals.
+         */
+        private final boolean traverse;
+
+        /**
+         * The results, by tenant id.
+         */
+        private final Map<String, Result> results;
+
+        /**
+         * Constructs a new ReplayTask and assigns the provided parameters to its
+         * attributes.
+         *
+         * @param ids       the tenant ids of the batch
+         * @param fileNames the log file names of the batch
+         * @param low       the first position of the range
+         * @param high      the position after the last one of the range
+         * @param traverse  whether to record the traversals
+         * @param results   the results, by tenant id
+         */
+        private ReplayTask(String[] ids, String[] fileNames, int low, int high, boolean traverse,
+                Map<String, Result> results) {
+            this.ids = ids;
+            this.fileNames = fileNames;
+            this.low = low;
+            this.high = high;
+            this.traverse = traverse;
+            this.results = results;
+        }
+
+        /**
+         * Replays the log of the range, or splits the range in halves.
+         */
+        @Override
+        protected void compute() {
+            if (high - low == 1) {
+                try {
+                    results.put(ids[low], replay(ids[low], fileNames[low], traverse));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int middle = (low + high) >>> 1;
+                invokeAll(new ReplayTask(ids, fileNames, low, middle, traverse, results),
+                        new ReplayTask(ids, fileNames, middle, high, traverse, results));
+            }
+        }
+    }
+
+    /**
+     * Returns the tree of the tenant, creating it if needed.
+     *
+     * @param id the tenant id
+     * @return the tree
+     */
+    public SplayTree getOrCreate(String id) {
+        return trees.computeIfAbsent(id, key -> new SplayTree());
+    }
+
+    /**
+     * Returns the tree of the tenant.
+     *
+     * @param id the tenant id
+     * @return the tree (or null if there is none)
+     */
+    public SplayTree get(String id) {
+        return trees.get(id);
+    }
+
+    /**
+     * Removes the tree of the tenant from the registry.
+     *
+     * @param id the tenant id
+     * @return the removed tree (or null if there was none)
+     */
+    public SplayTree remove(String id) {
+        return trees.remove(id);
+    }
+
+    /**
+     * Returns the number of tenants.
+     *
+     * @return the size
+     */
+    public int size() {
+        return trees.size();
+    }
+
+    /**
+     * Replays the operation log on the tree of the tenant, creating it if
+     * needed, and returns the result.
+     *
+     * @param id       the tenant id
+     * @param fileName the name of the operation log
+     * @param traverse whether to record the post-order traversal of the tree
+     * @return the result
+     * @throws IOException if the log cannot be read
+     */
+    public Result replay(String id, String fileName, boolean traverse) throws IOException {
+        SplayTree tree = getOrCreate(id);
+
+        synchronized (tree) {
+            long start = System.nanoTime();
+            long count = OperationReader.replay(fileName, (action, data) -> {
+                switch (action) {
+                case 'a':
+                    tree.insert(data);
+                    break;
+                case 'r':
+                    tree.remove(data);
+                    break;
+                case 'f':
+                    tree.search(data);
+                    break;
+                }
+            });
+            long elapsed = System.nanoTime() - start;
+
+            String traversal = null;
+            if (traverse) {
+                StringBuilder out = new StringBuilder();
+                tree.postOrderTraverse(tree.root, out);
+                traversal = out.toString();
+            }
+            return new Result(id, count, tree, elapsed, traversal);
+        }
+    }
+
+    /**
+     * Replays the operation logs of the tenants in parallel on the pool and
+     * returns the result of every tenant. Tenants must be distinct.
+     *
+     * @param logs     the names of the operation logs, by tenant id
+     * @param pool     the pool running the replays
+     * @param traverse whether to record the post-order traversals of the trees
+     * @return the results, by tenant id
+     * @throws IOException if a log cannot be read
+     */
+    public Map<String, Result> replayAll(Map<String, String> logs, ForkJoinPool pool, boolean traverse)
+            throws IOException {
+        Map<String, Result> results = new ConcurrentHashMap<>();
+        if (logs.isEmpty())
+            return results;
+
+        String[] ids = logs.keySet().toArray(new String[0]);
+        String[] fileNames = new String[ids.length];
+        for (int i = 0; i < ids.length; i++)
+            fileNames[i] = logs.get(ids[i]);
+
+        try {
+            pool.invoke(new ReplayTask(ids, fileNames, 0, ids.length, traverse, results));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return results;
+    }
+
+    /**
+     * Returns the tenant id of an operation log: its file name without
+     * directory nor extension.
+     *
+     * @param fileName the name of the operation log
+     * @return the tenant id
+     */
+    public static String tenantId(String fileName) {
+        String name = Paths.get(fileName).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Main class entry point. Replays the operation logs provided by name in
+     * command line argument, one tenant per log, on a work-stealing pool of the
+     * given number of threads (all processors if 0), then prints out the result
+     * of every tenant, the time spent replaying and the elapsed time.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayTreeRegistry &lt;threads&gt; &lt;textFileName.txt&gt;...`
+     * <p>
+     * `java SplayTreeRegistry 4 Operations.txt Operations1.txt Operations2.txt`
+     *
+     * @param args contains the number of threads and the file names
+     * @throws IOException if a log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Integer.parseInt(args[0]);
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+
+        Map<String, String> logs = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (logs.put(tenantId(args[i]), args[i]) != null)
+                throw new IllegalArgumentException("Several logs for tenant " + tenantId(args[i]));
+        }
+
+        SplayTreeRegistry registry = new SplayTreeRegistry();
+        long start = System.nanoTime();
+        Map<String, Result> results = registry.replayAll(logs, pool, false);
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        long busy = 0;
+        long operations = 0;
+        for (String id : logs.keySet()) {
+            Result result = results.get(id);
+            System.out.println(result);
+            busy += result.elapsedNanos;
+            operations += result.operationCount;
+        }
+        System.out.println(registry.size() + (registry.size() > 1 ? " tenants, " : " tenant, ") + operations
+                + " operations replayed in " + elapsed / 1000000 + " ms (" + busy / 1000000 + " ms of replay on "
+                + pool.getParallelism() + " threads)");
+    }
+}
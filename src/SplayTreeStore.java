@@ -0,0 +1,249 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A durable SplayTree kept in a directory as a snapshot and a write-ahead log.
+ * <p>
+ *
+ * Every insertion and removal is appended to the log before being applied to
+ * the tree, and becomes durable once its group is committed (and forced, as
+ * the fsync policy decides). `checkpoint` writes a snapshot of the tree and
+ * starts a new, empty log, so that opening the store only loads the latest
+ * snapshot and replays the records logged after it instead of every operation
+ * ever performed.
+ * <p>
+ *
+ * Searches are not logged. Since they splay, the shape of a recovered tree may
+ * differ from the one before the restart, but it holds the same nodes; the
+ * shape at the last checkpoint is restored exactly.
+ *
+ * @see SplaySnapshot
+ * @see WriteAheadLog
+ */
+public class SplayTreeStore implements Closeable {
+    /**
+     * Name of the snapshot file within the directory.
+     */
+    private static final String SNAPSHOT_FILE = "splay.snapshot";
+
+    /**
+     * Name of the log file within the directory.
+     */
+    private static final String LOG_FILE = "splay.wal";
+
+    /**
+     * Path of the snapshot file.
+     */
+    private final Path snapshotPath;
+
+    /**
+     * The recovered tree.
+     */
+    private final SplayTree tree;
+
+    /**
+     * The log of the mutations since the last checkpoint.
+     */
+    private final WriteAheadLog log;
+
+    /**
+     * Number of logged operations replayed when opening the store.
+     */
+    private final long replayedCount;
+
+    /**
+     * Opens the store in the provided directory, creating it if needed, and
+     * recovers the tree from the latest snapshot and the log.
+     *
+     * @param directory          the name of the directory
+     * @param fsyncPolicy        when committed groups are forced
+     * @param syncIntervalMillis the smallest delay between two forces with the
+     *                           `INTERVAL` policy
+     * @param groupSize          the number of records committed automatically
+     *                           together
+     * @throws IOException if the store cannot be read or written
+     */
+    public SplayTreeStore(String directory, WriteAheadLog.FsyncPolicy fsyncPolicy, long syncIntervalMillis,
+            int groupSize) throws IOException {
+        Path path = Paths.get(directory);
+        Files.createDirectories(path);
+        snapshotPath = path.resolve(SNAPSHOT_FILE);
+        String logName = path.resolve(LOG_FILE).toString();
+
+        long snapshotSequence = 0;
+        if (Files.exists(snapshotPath)) {
+            SplaySnapshot snapshot = SplaySnapshot.read(snapshotPath.toString());
+            tree = snapshot.getTree();
+            snapshotSequence = snapshot.getSequence();
+        } else {
+            tree = new SplayTree();
+        }
+
+        long[] replayed = { 0 };
+        if (Files.exists(path.resolve(LOG_FILE))) {
+            long base = WriteAheadLog.baseSequence(logName);
+            if (base > snapshotSequence)
+                throw new IOException("Log starts at " + base + " after snapshot at " + snapshotSequence);
+
+            // Records up to the snapshot were already applied to it.
+            WriteAheadLog.replay(logName, snapshotSequence, (action, data) -> {
+                if (action == 'a')
+                    tree.insert(data);
+                else
+                    tree.remove(data);
+                replayed[0]++;
+            });
+        }
+        replayedCount = replayed[0];
+
+        log = new WriteAheadLog(logName, fsyncPolicy, syncIntervalMillis, groupSize);
+        if (log.getSequence() < snapshotSequence)
+            log.truncate(snapshotSequence);
+    }
+
+    /**
+     * Returns the recovered tree. It must only be modified through the store.
+     *
+     * @return the tree
+     */
+    public SplayTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the number of logged operations replayed when opening the store.
+     *
+     * @return the number of replayed operations
+     */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * Returns the sequence number of the next logged operation.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return log.getSequence();
+    }
+
+    /**
+     * Logs and inserts new node in tree with provided data value.
+     *
+     * @param data the data value
+     * @throws IOException if the log cannot be written
+     */
+    public void insert(int data) throws IOException {
+        log.append('a', data);
+        tree.insert(data);
+    }
+
+    /**
+     * Logs and removes the node from the tree with the given data value.
+     *
+     * @param data the data value
+     * @throws IOException if the log cannot be written
+     */
+    public void remove(int data) throws IOException {
+        log.append('r', data);
+        tree.remove(data);
+    }
+
+    /**
+     * Searches for a node with given data value and returns if it is found.
+     *
+     * @param data the data value
+     * @return whether node with data value was found
+     */
+    public boolean search(int data) {
+        return tree.search(data);
+    }
+
+    /**
+     * Commits the logged operations not committed yet.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void commit() throws IOException {
+        log.commit();
+    }
+
+    /**
+     * Writes a snapshot of the tree and starts a new, empty log.
+     *
+     * @throws IOException if the store cannot be written
+     */
+    public void checkpoint() throws IOException {
+        log.commit();
+        SplaySnapshot.write(tree, log.getSequence(), snapshotPath.toString());
+        log.truncate(log.getSequence());
+    }
+
+    /**
+     * Commits the logged operations and closes the log.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Main class entry point. Opens (or recovers) the store in the directory
+     * provided by name in command line argument, applies the operations of the
+     * optional log file to it and checkpoints it if asked, then prints out its
+     * size and the time taken by recovery.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java SplayTreeStore &lt;directory&gt; &#91;textFileName.txt&#93; &#91;checkpoint&#93;`
+     * <p>
+     * `java SplayTreeStore store Operations.txt checkpoint`
+     *
+     * @param args contains the directory, the operation log and whether to
+     *             checkpoint
+     * @throws IOException if the store or the log cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        try (SplayTreeStore store = new SplayTreeStore(args[0], WriteAheadLog.FsyncPolicy.INTERVAL, 100, 256)) {
+            long elapsed = System.nanoTime() - start;
+            System.out.println("Recovered " + store.getTree().size() + " nodes in " + elapsed / 1000000 + " ms ("
+                    + store.getReplayedCount() + " logged operations replayed)");
+
+            if (args.length > 1) {
+                long count = OperationReader.replay(args[1], (action, data) -> {
+                    try {
+                        switch (action) {
+                        case 'a':
+                            store.insert(data);
+                            break;
+                        case 'r':
+                            store.remove(data);
+                            break;
+                        case 'f':
+                            store.search(data);
+                            break;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                store.commit();
+                System.out.println("Applied " + count + " operations, " + store.getTree().size() + " nodes");
+            }
+
+            if (args.length > 2 && args[2].equals("checkpoint")) {
+                store.checkpoint();
+                System.out.println("Checkpointed at operation " + store.getSequence());
+            }
+        }
+    }
+}
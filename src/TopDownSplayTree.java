@@ -0,0 +1,347 @@
+/**
+ * A top-down implementation of the Splay tree algorithm (Sleator and Tarjan).
+ * <p>
+ *
+ * Instead of descending to the accessed node and then rotating it back up
+ * through its ancestors, the tree is split while descending into a left tree
+ * of smaller keys and a right tree of larger keys, which are reassembled
+ * around the accessed node at the end. Insert, search and remove therefore
+ * each do a single descent, and nodes need no parent reference.
+ * <p>
+ *
+ * Duplicate keys are not stored twice, so `size` is the number of distinct
+ * keys. Unlike SplayTree, which counts copies, a repeated insertion leaves the
+ * tree as it is and a single removal drops the key. The comparison, zig-zig
+ * and zig-zag counters are counted like those of SplayTree: a zig-zig is
+ * counted for each rotation performed when two consecutive steps go the same
+ * way, and a zig-zag for each step that changes direction. Since the accessed
+ * node always ends up at the root, unlike in SplayTree, the trees and the
+ * counts differ from those of SplayTree for the same operations.
+ *
+ * @see SplayTree
+ */
+public class TopDownSplayTree {
+    /**
+     * A binary tree node without parent reference.
+     */
+    private static final class Node {
+        /**
+         * Data value for the given node.
+         */
+        int data;
+
+        /**
+         * Left child node.
+         */
+        Node left;
+
+        /**
+         * Right child node.
+         */
+        Node right;
+
+        /**
+         * Constructs a new Node and assigns provided `data` to its attribute.
+         *
+         * @param data the data value
+         */
+        Node(int data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * Root node.
+     */
+    private Node root;
+
+    /**
+     * Total number of nodes within tree.
+     */
+    private int size;
+
+    /**
+     * Node reused as the header of the left and right trees during a splay.
+     */
+    private final Node header = new Node(0);
+
+    /**
+     * Number of comparison operations.
+     */
+    private int compareCount = 0;
+
+    /**
+     * Number of zigzig operations.
+     */
+    private int zigzigCount = 0;
+
+    /**
+     * Number of zigzag operations.
+     */
+    private int zigzagCount = 0;
+
+    /**
+     * Constructs a new TopDownSplayTree with default attributes.
+     */
+    public TopDownSplayTree() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Inserts new node in tree with provided data value, unless it is already in
+     * the tree. Either way, the node with that value ends up at the root.
+     *
+     * @param data the data value
+     */
+    public void insert(int data) {
+        if (root == null) {
+            root = new Node(data);
+            size++;
+            return;
+        }
+
+        root = splay(data, root);
+        compareCount++;
+        if (data == root.data)
+            return;
+
+        // Split the tree around the new node.
+        Node node = new Node(data);
+        if (data < root.data) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        root = node;
+        size++;
+    }
+
+    /**
+     * Removes the node from the tree with the given data value.
+     *
+     * @param data the data value
+     */
+    public void remove(int data) {
+        if (root == null)
+            return;
+
+        root = splay(data, root);
+        compareCount++;
+        if (data != root.data)
+            return;
+
+        // Every key of the left subtree is smaller, so splaying it for `data`
+        // brings its maximum to its root, which has no right child.
+        if (root.left == null) {
+            root = root.right;
+        } else {
+            Node right = root.right;
+            root = splay(data, root.left);
+            root.right = right;
+        }
+        size--;
+    }
+
+    /**
+     * Searches for a node with given data value and returns if it is found.
+     *
+     * @param data the data value
+     * @return whether node with data value was found
+     */
+    public boolean search(int data) {
+        if (root == null)
+            return false;
+
+        root = splay(data, root);
+        compareCount++;
+        return data == root.data;
+    }
+
+    /**
+     * Returns size (total number of nodes) of tree.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of comparison operations.
+     *
+     * @return the number of compares
+     */
+    public int getCompareCount() {
+        return compareCount;
+    }
+
+    /**
+     * Returns the number of zigzig operations.
+     *
+     * @return the number of zig-zigs
+     */
+    public int getZigzigCount() {
+        return zigzigCount;
+    }
+
+    /**
+     * Returns the number of zigzag operations.
+     *
+     * @return the number of zig-zags
+     */
+    public int getZigzagCount() {
+        return zigzagCount;
+    }
+
+    /**
+     * Traverses the tree in post-order and prints to the console the number
+     * comparisons, zig-zig, and zig-zag operations at the provided number of operations.
+     *
+     * @param stepCount the number of completed operations
+     */
+    public void postOrderTraverse(int stepCount) {
+        StringBuilder text = new StringBuilder("Traversal at " + stepCount + ": ");
+        Tree.visitPostOrder(root, n -> n.left, n -> n.right,
+                n -> text.append(n.data).append(n == root ? ' ' : ','));
+        System.out.println(text);
+        System.out.println(compareCount + (compareCount > 1 ? " compares" : " compare"));
+        System.out.println(zigzigCount + (zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig"));
+        System.out.println(zigzagCount + (zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag"));
+    }
+
+    /**
+     * Splays the subtree for the given data value and returns its new root: the
+     * node with that value if there is one, otherwise the last node reached
+     * while looking for it.
+     *
+     * @param data the data value
+     * @param node the root of the subtree
+     * @return the new root of the subtree
+     */
+    private Node splay(int data, Node node) {
+        Node left = header;
+        Node right = header;
+        header.left = header.right = null;
+
+        while (true) {
+            compareCount++;
+            if (data < node.data) {
+                if (node.left == null)
+                    break;
+
+                compareCount++;
+                if (data < node.left.data) {
+                    // Zig-zig: rotate right before linking.
+                    Node child = node.left;
+                    node.left = child.right;
+                    child.right = node;
+                    node = child;
+                    zigzigCount++;
+                    if (node.left == null)
+                        break;
+                } else if (data > node.left.data && node.left.right != null) {
+                    zigzagCount++;
+                }
+
+                // Link the node into the right tree.
+                right.left = node;
+                right = node;
+                node = node.left;
+            } else if (data > node.data) {
+                if (node.right == null)
+                    break;
+
+                compareCount++;
+                if (data > node.right.data) {
+                    // Zig-zig: rotate left before linking.
+                    Node child = node.right;
+                    node.right = child.left;
+                    child.left = node;
+                    node = child;
+                    zigzigCount++;
+                    if (node.right == null)
+                        break;
+                } else if (data < node.right.data && node.right.left != null) {
+                    zigzagCount++;
+                }
+
+                // Link the node into the left tree.
+                left.right = node;
+                left = node;
+                node = node.right;
+            } else {
+                break;
+            }
+        }
+
+        // Reassemble the left, middle and right trees.
+        left.right = node.left;
+        right.left = node.right;
+        node.left = header.right;
+        node.right = header.left;
+        header.left = header.right = null;
+        return node;
+    }
+
+    /**
+     * Main class entry point. Prints out the post-order traversal of the tree
+     * generated using the text file provided by name in command line argument and
+     * step to traverse integer value, like SplayTree.
+     * <p>
+     *
+     * Example:
+     * <p>
+     * `java TopDownSplayTree &lt;textFileName.txt&gt; &#91;step-to-traverse&#93;`
+     * <p>
+     * `java TopDownSplayTree Operations.txt 6`
+     *
+     * @param args contains the file name string used to build tree
+     */
+    public static void main(String[] args) {
+        String textFileName = args[0];
+        int stepToTraverse = -1;
+
+        if (args.length == 2)
+            stepToTraverse = Integer.parseInt(args[1]);
+
+        TopDownSplayTree splayTree = new TopDownSplayTree();
+        int finalStep = stepToTraverse;
+        int[] stepCount = { 0 };
+
+        try {
+            OperationReader.replay(textFileName, (action, data) -> {
+                switch (action) {
+                case 'a':
+                    splayTree.insert(data);
+                    break;
+                case 'r':
+                    splayTree.remove(data);
+                    break;
+                case 'f':
+                    splayTree.search(data);
+                    break;
+                }
+                stepCount[0]++;
+
+                if (finalStep != -1 && finalStep == stepCount[0])
+                    splayTree.postOrderTraverse(stepCount[0]);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        if (stepToTraverse == -1) {
+            System.out.println(splayTree.compareCount + (splayTree.compareCount > 1 ? " compares" : " compare"));
+            System.out.println(splayTree.zigzigCount + (splayTree.zigzigCount > 1 ? " Zig-Zigs" : " Zig-Zig"));
+            System.out.println(splayTree.zigzagCount + (splayTree.zigzagCount > 1 ? " Zig-Zags" : " Zig-Zag"));
+        }
+
+        if (stepToTraverse == -2)
+            splayTree.postOrderTraverse(stepCount[0]);
+    }
+}
@@ -1,3 +1,11 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +31,26 @@ public abstract class Tree {
      */
     private static final Logger LOGGER = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
 
+    /**
+     * A visitor of the nodes of a traversal.
+     *
+     * @param <N> the type of the nodes
+     * @param <E> the type of exception thrown by the visitor
+     */
+    interface NodeVisitor<N, E extends Exception> {
+        void visit(N node) throws E;
+    }
+
+    /**
+     * Number of characters buffered before writing a traversal to the console.
+     */
+    protected static final int BUFFER_LENGTH = 1 << 16;
+
+    /**
+     * Initial capacity of the explicit stacks used by the traversals.
+     */
+    private static final int INITIAL_STACK_LENGTH = 64;
+
     public Tree() {
         this.root = null;
         this.size = 0;
@@ -31,41 +59,190 @@ public abstract class Tree {
 
     /**
      * Traverses the tree in post-order and prints to the console the node's `data`
-     * attribute.
+     * attribute. The output goes through a buffer that is flushed at the end.
      * 
      * @param node the node representing the tip of the subtree being investigated
      */
     public void postOrderTraverse(TreeNode node) {
-        if (node != null) {
-            postOrderTraverse(node.left);
-            postOrderTraverse(node.right);
-            System.out.print(node.data + (node == root ? " " : ","));
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_LENGTH);
+            postOrderTraverse(node, out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    public boolean isValidSplayStructure(TreeNode node) {
-        if (node != null) {
-            if (node.left != null & node.right != null) {
-                if (node.data < node.right.data || node.data < node.left.data) {
-                    LOGGER.warning("Following node has an improper BST child: " + node.data);
-                    return false;
-                }
-            } else if (node.left != null) {
-                if (node.data < node.left.data) {
-                    LOGGER.warning("Following node has an improper BST child: " + node.data);
-                    return false;
-                }
-            } else if (node.right != null) {
-                if (node.data > node.right.data) {
-                    LOGGER.warning("Following node has an improper BST child: " + node.data);
-                    return false;
+    /**
+     * Traverses the tree in post-order and appends the node's `data` attribute
+     * to `out`, each followed by a comma, or by a space for the root, like
+     * `postOrderTraverse(TreeNode)`.
+     * 
+     * @param node the node representing the tip of the subtree being investigated
+     * @param out  the sink of the traversal
+     * @throws IOException if the sink cannot be written
+     */
+    public void postOrderTraverse(TreeNode node, Appendable out) throws IOException {
+        StringBuilder text = new StringBuilder(12);
+        visitPostOrder(node, n -> n.left, n -> n.right, n -> {
+            text.setLength(0);
+            text.append(n.data).append(n == root ? ' ' : ',');
+            out.append(text);
+        });
+    }
+
+    /**
+     * Traverses the tree in pre-order and passes the node's `data` attribute to
+     * the consumer. The traversal uses an explicit stack rather than recursion,
+     * so degenerate trees cannot overflow the call stack.
+     * 
+     * @param node     the node representing the tip of the subtree being investigated
+     * @param consumer the consumer of the data values
+     */
+    public void preOrderTraverse(TreeNode node, IntConsumer consumer) {
+        TreeNode[] stack = new TreeNode[INITIAL_STACK_LENGTH];
+        int top = 0;
+
+        while (node != null) {
+            consumer.accept(node.data);
+
+            // Remember the right subtree while going down the left one.
+            if (node.right != null) {
+                if (node.left == null) {
+                    node = node.right;
+                    continue;
                 }
+                if (top == stack.length)
+                    stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = node.right;
             }
 
-            // Log simple warnings in case BST properties are violated.
-            isValidSplayStructure(node.left);
-            isValidSplayStructure(node.right);
+            node = node.left != null ? node.left : top > 0 ? stack[--top] : null;
+        }
+    }
+
+    /**
+     * Traverses the tree in in-order and passes the node's `data` attribute to
+     * the consumer. The traversal uses an explicit stack rather than recursion.
+     * 
+     * @param node     the node representing the tip of the subtree being investigated
+     * @param consumer the consumer of the data values
+     */
+    public void inOrderTraverse(TreeNode node, IntConsumer consumer) {
+        TreeNode[] stack = new TreeNode[INITIAL_STACK_LENGTH];
+        int top = 0;
+
+        while (node != null || top > 0) {
+            // Stack the left spine of the subtree.
+            while (node != null) {
+                if (top == stack.length)
+                    stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = node;
+                node = node.left;
+            }
+
+            node = stack[--top];
+            consumer.accept(node.data);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Traverses the tree in post-order and passes the node's `data` attribute to
+     * the consumer. The traversal uses an explicit stack rather than recursion.
+     * 
+     * @param node     the node representing the tip of the subtree being investigated
+     * @param consumer the consumer of the data values
+     */
+    public void postOrderTraverse(TreeNode node, IntConsumer consumer) {
+        visitPostOrder(node, n -> n.left, n -> n.right, n -> consumer.accept(n.data));
+    }
+
+    /**
+     * Determines whether the subtree satisfies the binary search tree ordering,
+     * i.e. whether its in-order traversal is non-decreasing, and logs a warning
+     * naming the first node out of order. The check uses an explicit stack
+     * rather than recursion.
+     * 
+     * @param node the node representing the tip of the subtree being investigated
+     * @return whether the subtree is ordered
+     */
+    public boolean isValidSplayStructure(TreeNode node) {
+        TreeNode[] stack = new TreeNode[INITIAL_STACK_LENGTH];
+        int top = 0;
+        TreeNode previous = null;
+
+        while (node != null || top > 0) {
+            while (node != null) {
+                if (top == stack.length)
+                    stack = Arrays.copyOf(stack, top * 2);
+                stack[top++] = node;
+                node = node.left;
+            }
+
+            node = stack[--top];
+            if (previous != null && node.data < previous.data) {
+                LOGGER.warning("Following node has an improper BST child: " + node.data);
+                return false;
+            }
+            previous = node;
+            node = node.right;
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Traverses the subtree in post-order and passes each node to the visitor,
+     * using an explicit stack rather than recursion. The children of a node are
+     * given by the accessors, null standing for a missing child, so that trees
+     * with their own node types share this traversal. A node stays on the stack
+     * under its children until they are visited, which needs no comparison of
+     * nodes.
+     * 
+     * @param <N>     the type of the nodes
+     * @param <E>     the type of exception thrown by the visitor
+     * @param node    the node representing the tip of the subtree being investigated
+     * @param left    the accessor of the left child of a node
+     * @param right   the accessor of the right child of a node
+     * @param visitor the visitor of the nodes
+     * @throws E if the visitor throws it
+     */
+    @SuppressWarnings("unchecked")
+    static <N, E extends Exception> void visitPostOrder(N node, UnaryOperator<N> left, UnaryOperator<N> right,
+            NodeVisitor<? super N, E> visitor) throws E {
+        if (node == null)
+            return;
+
+        Object[] stack = new Object[INITIAL_STACK_LENGTH];
+        boolean[] expanded = new boolean[INITIAL_STACK_LENGTH];
+        int top = 0;
+        stack[top++] = node;
+
+        while (top > 0) {
+            N peek = (N) stack[top - 1];
+            if (expanded[top - 1]) {
+                top--;
+                visitor.visit(peek);
+                continue;
+            }
+
+            // Stack the children above the node, the left one on top so that it
+            // is visited first.
+            expanded[top - 1] = true;
+            if (top + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+                expanded = Arrays.copyOf(expanded, top * 2);
+            }
+            N child = right.apply(peek);
+            if (child != null) {
+                stack[top] = child;
+                expanded[top++] = false;
+            }
+            child = left.apply(peek);
+            if (child != null) {
+                stack[top] = child;
+                expanded[top++] = false;
+            }
+        }
+    }
+}
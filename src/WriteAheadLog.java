@@ -0,0 +1,523 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of SplayTree mutations, with group commit and a
+ * configurable fsync policy.
+ * <p>
+ *
+ * The log starts with the four `MAGIC` bytes, a version byte and the sequence
+ * number of its first record (8 bytes), which lets a checkpoint start a new log
+ * where the snapshot left off. Records are appended to an in-memory group and
+ * written together by `commit` as one frame: the length of the records, their
+ * number and their CRC-32 (4 bytes each), then the records, each a one-byte
+ * opcode (0 to add, 1 to remove) followed by the zig-zag encoded data value as
+ * a variable-length integer. A group is committed automatically once it holds
+ * `groupSize` records.
+ * <p>
+ *
+ * With the `INTERVAL` policy, a background daemon thread also forces committed
+ * frames once the interval has passed, so the last commits before the log goes
+ * idle are not left unforced until the next one. Whenever the log file is
+ * created or replaced, its directory is forced too so that the new entry
+ * itself survives a crash.
+ * <p>
+ *
+ * A crash can leave a partially written frame at the end of the log. Replay
+ * stops at the first incomplete or corrupted frame, and reopening the log for
+ * writing truncates it there.
+ *
+ * @see SplaySnapshot
+ * @see SplayTreeStore
+ */
+public class WriteAheadLog implements OperationHandler, Closeable {
+    /**
+     * When committed groups are forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Every commit is forced before returning.
+         */
+        ALWAYS,
+
+        /**
+         * A commit is forced if the last force is older than the sync interval,
+         * and committed frames are forced in the background once it is.
+         */
+        INTERVAL,
+
+        /**
+         * Commits are left to the operating system to write back.
+         */
+        NEVER
+    }
+
+    /**
+     * Bytes identifying a write-ahead log.
+     */
+    private static final byte[] MAGIC = { 'S', 'P', 'L', 'W' };
+
+    /**
+     * Version of the format.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Number of bytes before the first frame.
+     */
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + 8;
+
+    /**
+     * Number of bytes before the records of a frame.
+     */
+    private static final int FRAME_HEADER_LENGTH = 12;
+
+    /**
+     * Largest number of bytes taken by a record.
+     */
+    private static final int MAX_RECORD_LENGTH = 6;
+
+    /**
+     * Action characters indexed by opcode.
+     */
+    private static final char[] ACTIONS = { 'a', 'r' };
+
+    /**
+     * Path of the log file.
+     */
+    private final Path path;
+
+    /**
+     * The channel the log is written to.
+     */
+    private FileChannel channel;
+
+    /**
+     * When committed groups are forced.
+     */
+    private final FsyncPolicy fsyncPolicy;
+
+    /**
+     * Smallest delay between two forces with the `INTERVAL` policy.
+     */
+    private final long syncIntervalNanos;
+
+    /**
+     * Number of records committed automatically together.
+     */
+    private final int groupSize;
+
+    /**
+     * The frame being grouped, starting with room for its header.
+     */
+    private byte[] group = new byte[FRAME_HEADER_LENGTH + 1024];
+
+    /**
+     * Number of bytes of the frame being grouped.
+     */
+    private int groupLength = FRAME_HEADER_LENGTH;
+
+    /**
+     * Number of records of the frame being grouped.
+     */
+    private int groupCount = 0;
+
+    /**
+     * Sequence number of the next record appended.
+     */
+    private long sequence;
+
+    /**
+     * Time of the last force.
+     */
+    private long lastSync = System.nanoTime();
+
+    /**
+     * Whether some committed frames were not forced yet.
+     */
+    private boolean unsynced = false;
+
+    /**
+     * Timer forcing committed frames with the `INTERVAL` policy (or null).
+     */
+    private final ScheduledExecutorService syncTimer;
+
+    /**
+     * Failure of the last background force, reported by the next commit (or
+     * null).
+     */
+    private IOException syncFailure;
+
+    /**
+     * Opens the log file with the provided name, creating it if needed and
+     * truncating any torn frame at its end.
+     *
+     * @param fileName           the name of the log file
+     * @param fsyncPolicy        when committed groups are forced
+     * @param syncIntervalMillis the smallest delay between two forces with the
+     *                           `INTERVAL` policy
+     * @param groupSize          the number of records committed automatically
+     *                           together
+     * @throws IOException if the file cannot be read or written, or is not a log
+     */
+    public WriteAheadLog(String fileName, FsyncPolicy fsyncPolicy, long syncIntervalMillis, int groupSize)
+            throws IOException {
+        if (groupSize < 1)
+            throw new IllegalArgumentException("Group size must be positive: " + groupSize);
+
+        this.path = Paths.get(fileName);
+        this.fsyncPolicy = fsyncPolicy;
+        this.syncIntervalNanos = syncIntervalMillis * 1000000;
+        this.groupSize = groupSize;
+
+        if (!Files.exists(path) || Files.size(path) < HEADER_LENGTH) {
+            create(path, 0);
+            syncDirectory(path);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] end = scan(channel, fileName, Long.MAX_VALUE, null);
+        channel.truncate(end[0]);
+        channel.position(end[0]);
+        sequence = end[1];
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "WriteAheadLog sync " + fileName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long delay = Math.max(1, syncIntervalMillis);
+            syncTimer.scheduleWithFixedDelay(this::syncIfDue, delay, delay, TimeUnit.MILLISECONDS);
+        } else {
+            syncTimer = null;
+        }
+    }
+
+    /**
+     * Replays the committed records of the log file with the provided name,
+     * skipping those with a sequence number below `fromSequence`.
+     *
+     * @param fileName     the name of the log file
+     * @param fromSequence the sequence number of the first record to replay
+     * @param handler      the handler receiving the operations
+     * @return the sequence number following the last committed record
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    public static long replay(String fileName, long fromSequence, OperationHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return scan(channel, fileName, fromSequence, handler)[1];
+        }
+    }
+
+    /**
+     * Returns the sequence number of the first record of the log file with the
+     * provided name.
+     *
+     * @param fileName the name of the log file
+     * @return the base sequence number
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    public static long baseSequence(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            return readHeader(channel, fileName);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the next record appended.
+     *
+     * @return the sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Appends the operation to the current group, committing the group once it
+     * is full.
+     *
+     * @param action the action character ('a' or 'r')
+     * @param data   the data value
+     * @return the sequence number of the record
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized long append(char action, int data) throws IOException {
+        int opcode = action == 'a' ? 0 : action == 'r' ? 1 : -1;
+        if (opcode == -1)
+            throw new IllegalArgumentException("Not a mutation: " + action);
+
+        if (groupLength + MAX_RECORD_LENGTH > group.length)
+            group = Arrays.copyOf(group, group.length * 2);
+        group[groupLength++] = (byte) opcode;
+        int zigzag = (data << 1) ^ (data >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            group[groupLength++] = (byte) (zigzag & 0x7F | 0x80);
+            zigzag >>>= 7;
+        }
+        group[groupLength++] = (byte) zigzag;
+        groupCount++;
+
+        long appended = sequence++;
+        if (groupCount >= groupSize)
+            commit();
+        return appended;
+    }
+
+    /**
+     * Appends the operation, ignoring searches.
+     *
+     * @param action the action character
+     * @param data   the data value
+     */
+    @Override
+    public void handle(char action, int data) {
+        if (action != 'a' && action != 'r')
+            return;
+        try {
+            append(action, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the current group to the log as one frame, then forces it
+     * according to the fsync policy.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void commit() throws IOException {
+        if (syncFailure != null) {
+            IOException failure = syncFailure;
+            syncFailure = null;
+            throw failure;
+        }
+
+        if (groupCount > 0) {
+            CRC32 crc = new CRC32();
+            crc.update(group, FRAME_HEADER_LENGTH, groupLength - FRAME_HEADER_LENGTH);
+            ByteBuffer buffer = ByteBuffer.wrap(group, 0, groupLength);
+            buffer.putInt(groupLength - FRAME_HEADER_LENGTH).putInt(groupCount).putInt((int) crc.getValue());
+            buffer.position(0);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+
+            groupLength = FRAME_HEADER_LENGTH;
+            groupCount = 0;
+            unsynced = true;
+        }
+
+        if (unsynced && (fsyncPolicy == FsyncPolicy.ALWAYS
+                || fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastSync >= syncIntervalNanos))
+            sync();
+    }
+
+    /**
+     * Forces the committed frames to the storage device, whatever the policy.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        channel.force(false);
+        lastSync = System.nanoTime();
+        unsynced = false;
+    }
+
+    /**
+     * Forces the committed frames if the last force is older than the sync
+     * interval. Run by the timer of the `INTERVAL` policy.
+     */
+    private synchronized void syncIfDue() {
+        if (!unsynced || !channel.isOpen() || System.nanoTime() - lastSync < syncIntervalNanos)
+            return;
+        try {
+            sync();
+        } catch (IOException e) {
+            syncFailure = e;
+        }
+    }
+
+    /**
+     * Commits the current group and replaces the log with an empty one starting
+     * at the given sequence number. Called once a snapshot reflecting every
+     * record before that number was written.
+     *
+     * @param baseSequence the sequence number of the next record appended
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void truncate(long baseSequence) throws IOException {
+        commit();
+        Path temporary = Paths.get(path + ".tmp");
+        create(temporary, baseSequence);
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        channel.position(HEADER_LENGTH);
+        sequence = baseSequence;
+        unsynced = false;
+    }
+
+    /**
+     * Commits the current group, forces the log and closes it.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (syncTimer != null)
+            syncTimer.shutdown();
+        commit();
+        if (unsynced && fsyncPolicy != FsyncPolicy.NEVER)
+            sync();
+        channel.close();
+    }
+
+    /**
+     * Forces the directory holding the file, so that a file just created or
+     * moved there is still listed after a crash. Platforms that cannot open a
+     * directory (such as Windows) are left to their own guarantees.
+     *
+     * @param file the path of the file
+     * @throws IOException if the directory cannot be forced
+     */
+    static void syncDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory == null)
+            return;
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (FileChannel opened = channel) {
+            opened.force(true);
+        }
+    }
+
+    /**
+     * Writes an empty, forced log starting at the given sequence number.
+     *
+     * @param path         the path of the log file
+     * @param baseSequence the sequence number of the first record
+     * @throws IOException if the file cannot be written
+     */
+    private static void create(Path path, long baseSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).put(VERSION).putLong(baseSequence).flip();
+            while (header.hasRemaining())
+                channel.write(header);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the header of the log and returns its base sequence number.
+     *
+     * @param channel  the channel of the log file
+     * @param fileName the name of the log file
+     * @return the base sequence number
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    private static long readHeader(FileChannel channel, String fileName) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+            ;
+        header.flip();
+
+        if (header.remaining() < HEADER_LENGTH)
+            throw new IOException("Not a write-ahead log: " + fileName);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not a write-ahead log: " + fileName);
+        int version = header.get();
+        if (version != VERSION)
+            throw new IOException("Unsupported log version " + version + ": " + fileName);
+        return header.getLong();
+    }
+
+    /**
+     * Reads the frames of the log up to the first incomplete or corrupted one,
+     * passing the records from `fromSequence` on to the handler (if any).
+     *
+     * @param channel      the channel of the log file
+     * @param fileName     the name of the log file
+     * @param fromSequence the sequence number of the first record to replay
+     * @param handler      the handler receiving the operations (or null)
+     * @return the position following the last valid frame, and the sequence
+     *         number following its last record
+     * @throws IOException if the file cannot be read or is not a log
+     */
+    private static long[] scan(FileChannel channel, String fileName, long fromSequence, OperationHandler handler)
+            throws IOException {
+        long sequence = readHeader(channel, fileName);
+        long position = HEADER_LENGTH;
+        long size = channel.size();
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+        byte[] records = new byte[1024];
+        CRC32 crc = new CRC32();
+
+        while (size - position >= FRAME_HEADER_LENGTH) {
+            frameHeader.clear();
+            while (frameHeader.hasRemaining())
+                channel.read(frameHeader, position + frameHeader.position());
+            frameHeader.flip();
+            int length = frameHeader.getInt();
+            int count = frameHeader.getInt();
+            int checksum = frameHeader.getInt();
+            if (length <= 0 || count <= 0 || length > size - position - FRAME_HEADER_LENGTH)
+                break;
+
+            if (records.length < length)
+                records = new byte[Math.max(length, records.length * 2)];
+            ByteBuffer buffer = ByteBuffer.wrap(records, 0, length);
+            while (buffer.hasRemaining())
+                channel.read(buffer, position + FRAME_HEADER_LENGTH + buffer.position());
+            crc.reset();
+            crc.update(records, 0, length);
+            if ((int) crc.getValue() != checksum)
+                break;
+
+            // Records before `fromSequence` were already applied.
+            if (handler != null && sequence + count > fromSequence) {
+                int offset = 0;
+                for (int i = 0; i < count; i++) {
+                    int opcode = records[offset++];
+                    int zigzag = 0;
+                    for (int shift = 0;; shift += 7) {
+                        byte b = records[offset++];
+                        zigzag |= (b & 0x7F) << shift;
+                        if (b >= 0)
+                            break;
+                    }
+                    if (sequence + i >= fromSequence)
+                        handler.handle(ACTIONS[opcode], (zigzag >>> 1) ^ -(zigzag & 1));
+                }
+            }
+
+            sequence += count;
+            position += FRAME_HEADER_LENGTH + length;
+        }
+
+        return new long[] { position, sequence };
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.SplittableRandom;
+
+/**
+ * A seeded sampler of the Zipf distribution over the ranks 1 to n, where rank k
+ * is drawn with a probability proportional to 1 / k^exponent.
+ * <p>
+ *
+ * Sampling uses rejection-inversion (Hormann and Derflinger), which needs
+ * neither a table of the n probabilities nor their normalization constant, so
+ * it takes constant memory and expected constant time per sample even for
+ * billions of ranks. The same seed always yields the same sequence of ranks.
+ *
+ * @see SplayBenchmark
+ * @see OperationGenerator
+ */
+public class ZipfDistribution {
+    /**
+     * Number of ranks.
+     */
+    private final int n;
+
+    /**
+     * Exponent of the distribution.
+     */
+    private final double exponent;
+
+    /**
+     * The source of randomness.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Value of `hIntegral(1.5) - 1`.
+     */
+    private final double hIntegralX1;
+
+    /**
+     * Value of `hIntegral(n + 0.5)`.
+     */
+    private final double hIntegralN;
+
+    /**
+     * Threshold below which a sample is accepted without further test.
+     */
+    private final double s;
+
+    /**
+     * Constructs a new ZipfDistribution over the ranks 1 to `n`.
+     *
+     * @param n        the number of ranks
+     * @param exponent the exponent, greater than 0
+     * @param seed     the seed of the random number generator
+     */
+    public ZipfDistribution(int n, double exponent, long seed) {
+        if (n < 1)
+            throw new IllegalArgumentException("Number of ranks must be positive: " + n);
+        if (!(exponent > 0))
+            throw new IllegalArgumentException("Exponent must be positive: " + exponent);
+
+        this.n = n;
+        this.exponent = exponent;
+        this.random = new SplittableRandom(seed);
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Returns the number of ranks.
+     *
+     * @return the number of ranks
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Returns the exponent of the distribution.
+     *
+     * @return the exponent
+     */
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Draws a rank, between 1 and `n` (both inclusive).
+     *
+     * @return the rank
+     */
+    public int sample() {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1)
+                k = 1;
+            else if (k > n)
+                k = n;
+
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k))
+                return k;
+        }
+    }
+
+    /**
+     * Maps a rank to a key so that consecutive ranks are far apart, through a
+     * multiplication by an odd constant modulo the smallest enclosing power of
+     * two, cycling until the key falls below `size`. Distinct ranks below `size`
+     * map to distinct keys, so the hot ranks of a sample can be spread over a
+     * key range.
+     *
+     * @param rank the rank (0-based)
+     * @param size the number of keys
+     * @return the key
+     */
+    public static int scatter(int rank, int size) {
+        int mask = size <= 1 ? 0 : -1 >>> Integer.numberOfLeadingZeros(size - 1);
+        int key = rank;
+        do {
+            key = (key * 0x9E3779B1 + 0x7F4A7C15) & mask;
+        } while (key >= size);
+        return key;
+    }
+
+    /**
+     * Returns the unnormalized density, 1 / x^exponent.
+     *
+     * @param x the point
+     * @return the density
+     */
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * Returns the integral of `h` from 1 to x.
+     *
+     * @param x the point
+     * @return the integral
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    /**
+     * Returns the inverse of `hIntegral`.
+     *
+     * @param x the value of the integral
+     * @return the point
+     */
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1)
+            t = -1;
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /**
+     * Returns log(1 + x) / x, accurately near 0.
+     *
+     * @param x the argument
+     * @return the value
+     */
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8)
+            return Math.log1p(x) / x;
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * Returns (e^x - 1) / x, accurately near 0.
+     *
+     * @param x the argument
+     * @return the value
+     */
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8)
+            return Math.expm1(x) / x;
+        return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}